@@ -0,0 +1,49 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+/**
+ * Texts of the benchmarks: a tweet-sized sentence, a review of about 600 characters and a long article made of
+ * that review repeated.
+ *
+ * @author Animesh Pandey
+ */
+final class BenchmarkTexts {
+    static final String SHORT = "VADER is VERY SMART, really handsome, and INCREDIBLY FUNNY!!!";
+
+    static final String MEDIUM = "I'm a bit of a regular here. I'd like to give it 5 stars, but almost every time I go " +
+            "my friends and I get frustrated with the service, so I had to knock it down to 4 stars. " +
+            "The servers are extremely inattentive. \nWe always sit in the bar/lounge area, which is " +
+            "beautifully decorated and has quite a fresh, relaxing vibe. \nThe drinks and food are " +
+            "excellent -- I've only had 1 slightly bad food experience here out of probably 15 visits. " +
+            "During happy hour, drinks are cheaper and we always get a few apps to share. The food is " +
+            "really outstanding, full of flavors and VERY unique for Pittsburgh. I love it! Go!";
+
+    static final String LONG = repeat(MEDIUM, 32);
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * @param size one of {@code short}, {@code medium} or {@code long}
+     * @return the text of that size
+     */
+    static String of(String size) {
+        switch (size) {
+            case "short":
+                return SHORT;
+            case "medium":
+                return MEDIUM;
+            case "long":
+                return LONG;
+            default:
+                throw new IllegalArgumentException("unknown text size [" + size + "]");
+        }
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder(text.length() * times + times);
+        for (int i = 0; i < times; i++) {
+            builder.append(text).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.ingest.IngestDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link VaderProcessor#execute(IngestDocument)} on review documents shaped like the Yelp example of
+ * the README, with one {@code input_field} and with {@code input_fields} spanning the comments of the review, for
+ * several {@code output_format}s.
+ * <p>
+ * The document is rebuilt on every invocation, as the ingest service does for each indexed document, so the
+ * reported allocation rate includes the document itself.
+ *
+ * @author Animesh Pandey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VaderProcessorBenchmark {
+    @Param({"short", "medium", "long"})
+    public String size;
+
+    @Param({"map", "compound", "label"})
+    public String outputFormat;
+
+    private VaderProcessor singleField;
+    private VaderProcessor multipleFields;
+    private String content;
+
+    @Setup
+    public void setUp() throws Exception {
+        VaderProcessor.Factory factory = new VaderProcessor.Factory(new VaderSentimentService().start());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_field", "content");
+        config.put("target_field", "polarity");
+        config.put("output_format", outputFormat);
+        singleField = factory.create(null, "single", config);
+
+        config = new HashMap<>();
+        config.put("input_fields", Arrays.asList("content", "comments.*.text"));
+        config.put("target_field", "polarity");
+        config.put("aggregate_field", "overall_polarity");
+        config.put("output_format", outputFormat);
+        multipleFields = factory.create(null, "multiple", config);
+
+        content = BenchmarkTexts.of(size);
+    }
+
+    @Benchmark
+    public IngestDocument executeSingleField() throws Exception {
+        IngestDocument document = newDocument();
+        singleField.execute(document);
+        return document;
+    }
+
+    @Benchmark
+    public IngestDocument executeMultipleFields() throws Exception {
+        IngestDocument document = newDocument();
+        multipleFields.execute(document);
+        return document;
+    }
+
+    private IngestDocument newDocument() {
+        Map<String, Object> source = new HashMap<>();
+        source.put("review_user_id", "JWtFuKaFXn_l5h-qKZWZuQ");
+        source.put("review_date", "2014-06-03");
+        source.put("review_stars", 4);
+        source.put("content", content);
+        List<Object> comments = new ArrayList<>();
+        comments.add(comment("The book was good."));
+        comments.add(comment("At least it isn't a horrible book."));
+        comments.add(comment("Today kinda sux! But I'll get by, lol"));
+        source.put("comments", comments);
+        return new IngestDocument("yelp_index", "review", "HGZ1H9j7J3RCzX2CC7XCcg2", null, null, null, null,
+                source);
+    }
+
+    private static Map<String, Object> comment(String text) {
+        Map<String, Object> comment = new HashMap<>();
+        comment.put("text", text);
+        return comment;
+    }
+}
@@ -0,0 +1,84 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of scoring a single text with {@link VaderSentimentService}, through the {@code Map} returned by
+ * {@link VaderSentimentService#apply(String)} and through the reused array of
+ * {@link VaderSentimentService#score(CharSequence, float[])}, and of scoring a batch of {@value #BATCH_SIZE}
+ * texts one by one and with {@link VaderSentimentService#scoreAll(List, float[])}.
+ *
+ * @author Animesh Pandey
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VaderSentimentServiceBenchmark {
+    @Param({"short", "medium", "long"})
+    public String size;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private VaderSentimentService service;
+    private String text;
+    private final float[] polarity = new float[4];
+    private final List<String> batch = new ArrayList<>();
+    private final float[] polarities = new float[BATCH_SIZE * 4];
+
+    @Setup
+    public void setUp() {
+        service = new VaderSentimentService().start();
+        text = BenchmarkTexts.of(size);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            // distinct copies, as the documents of a bulk request are
+            batch.add(new String(text.toCharArray()));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Float> apply() {
+        return service.apply(text);
+    }
+
+    @Benchmark
+    public float[] score() {
+        service.score(text, polarity);
+        return polarity;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public float[] scoreOneByOne() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            service.score(batch.get(i), polarity);
+            System.arraycopy(polarity, 0, polarities, i * 4, 4);
+        }
+        return polarities;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public float[] scoreAll() {
+        service.scoreAll(batch, polarities);
+        return polarities;
+    }
+}
@@ -0,0 +1,61 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one {@link VaderSentimentService} shared by 1, 4 and as many threads as there are processors,
+ * which is how the ingest threads of a node use it.
+ *
+ * @author Animesh Pandey
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VaderThroughputBenchmark {
+    @Param({"short", "medium", "long"})
+    public String size;
+
+    private VaderSentimentService service;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        service = new VaderSentimentService().start();
+        text = BenchmarkTexts.of(size);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Map<String, Float> oneThread() {
+        return service.apply(text);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Map<String, Float> fourThreads() {
+        return service.apply(text);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Map<String, Float> allProcessors() {
+        return service.apply(text);
+    }
+}
@@ -0,0 +1,242 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Precompiled lexicon file, memory mapped by the nodes so that it is neither parsed at startup nor held on the heap.
+ * <p>
+ * The file is an open addressing hash table of the words, followed by their characters:
+ * <pre>
+ * int   magic, "VADR"
+ * int   version
+ * int   number of words
+ * int   number of slots, a power of two at least twice the number of words
+ * long  content hash, the sum of the {@link VaderLexicon#entryHash(CharSequence, float)} of every word
+ * slots of {int hash, int offset of the first character, int number of characters, float valence},
+ *       empty when the number of characters is 0
+ * char  characters of the words
+ * </pre>
+ * The hash of a word is computed over its characters, so that a word of the text is looked up without building a
+ * string, as in the heap lexicon.
+ *
+ * @author Animesh Pandey
+ */
+final class BinaryLexicon {
+    /**
+     * Name of the compiled lexicon in the directory of the plugin.
+     */
+    static final String FILE_NAME = "vader_lexicon.bin";
+
+    private static final int MAGIC = 0x56414452;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int SLOT_BYTES = 16;
+
+    private BinaryLexicon() {
+    }
+
+    /**
+     * Writes the words and their valences to a new compiled lexicon.
+     *
+     * @param entries valence of every word
+     * @param file    file receiving the compiled lexicon
+     * @throws IOException iff the file could not be written
+     */
+    static void write(Map<String, Float> entries, Path file) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(entries.size(), 1) * 2 - 1) << 1;
+        int characters = 0;
+        for (String word : entries.keySet()) {
+            characters += word.length();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + capacity * SLOT_BYTES + characters * 2);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, entries.size());
+        buffer.putInt(12, capacity);
+        int charsStart = HEADER_BYTES + capacity * SLOT_BYTES;
+        int offset = 0;
+        long contentHash = 0;
+        for (Map.Entry<String, Float> entry : entries.entrySet()) {
+            String word = entry.getKey();
+            if (word.isEmpty()) {
+                throw new IllegalArgumentException("the lexicon can not hold an empty word");
+            }
+            int hash = hash(word, 0, word.length(), false);
+            int slot = hash & (capacity - 1);
+            while (buffer.getInt(HEADER_BYTES + slot * SLOT_BYTES + 8) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            buffer.putInt(position, hash);
+            buffer.putInt(position + 4, offset);
+            buffer.putInt(position + 8, word.length());
+            buffer.putFloat(position + 12, entry.getValue());
+            for (int i = 0; i < word.length(); i++) {
+                buffer.putChar(charsStart + (offset + i) * 2, word.charAt(i));
+            }
+            offset += word.length();
+            contentHash += VaderLexicon.entryHash(word, entry.getValue());
+        }
+        buffer.putLong(16, contentHash);
+        Files.write(file, buffer.array());
+    }
+
+    /**
+     * Maps a compiled lexicon in memory.
+     *
+     * @param file file written by {@link #write(Map, Path)}
+     * @return the words of the lexicon, read from the mapped file
+     * @throws IOException iff the file could not be mapped or is not a compiled lexicon
+     */
+    static VaderLexicon.Table map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("[" + file + "] is not a compiled VADER lexicon");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("[" + file + "] is a compiled VADER lexicon of unsupported version ["
+                    + buffer.getInt(4) + "]");
+        }
+        int size = buffer.getInt(8);
+        int capacity = buffer.getInt(12);
+        if (Integer.bitCount(capacity) != 1 || size >= capacity
+                || (long) HEADER_BYTES + (long) capacity * SLOT_BYTES > buffer.capacity()) {
+            throw new IOException("[" + file + "] is a truncated or corrupted compiled VADER lexicon");
+        }
+        checkSlots(file, buffer, size, capacity);
+        return new MappedTable(buffer, size, capacity, buffer.getLong(16));
+    }
+
+    /**
+     * Checks that the file holds as many words as its header says and that the characters of every word lie in
+     * the file, so that a truncated or corrupted file fails here rather than on a lookup.
+     */
+    private static void checkSlots(Path file, ByteBuffer buffer, int size, int capacity) throws IOException {
+        long charsStart = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        long characters = (buffer.capacity() - charsStart) / 2;
+        int words = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = HEADER_BYTES + slot * SLOT_BYTES;
+            int offset = buffer.getInt(position + 4);
+            int length = buffer.getInt(position + 8);
+            if (length == 0) {
+                continue;
+            }
+            if (offset < 0 || length < 0 || (long) offset + length > characters) {
+                throw new IOException("[" + file + "] is a truncated or corrupted compiled VADER lexicon, the word of"
+                        + " slot [" + slot + "] lies outside of the file");
+            }
+            words++;
+        }
+        if (words != size) {
+            throw new IOException("[" + file + "] is a truncated or corrupted compiled VADER lexicon, it holds ["
+                    + words + "] words instead of [" + size + "]");
+        }
+    }
+
+    /**
+     * FNV-1a hash of the characters, lower-cased if asked to, followed by a final mix of the bits.
+     */
+    private static int hash(CharSequence text, int start, int end, boolean lowerCase) {
+        int hash = 0x811C9DC5;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            hash = (hash ^ (lowerCase ? Character.toLowerCase(c) : c)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+
+    /**
+     * Words of a mapped lexicon. Lookups only use absolute reads, so they are safe from any thread.
+     */
+    private static final class MappedTable implements VaderLexicon.Table {
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int mask;
+        private final int charsStart;
+        private final long contentHash;
+
+        MappedTable(ByteBuffer buffer, int size, int capacity, long contentHash) {
+            this.buffer = buffer;
+            this.size = size;
+            this.mask = capacity - 1;
+            this.charsStart = HEADER_BYTES + capacity * SLOT_BYTES;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int find(CharSequence text, int start, int end) {
+            int length = end - start;
+            int hash = hash(text, start, end, true);
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int position = HEADER_BYTES + slot * SLOT_BYTES;
+                int wordLength = buffer.getInt(position + 8);
+                if (wordLength == 0) {
+                    return -1;
+                }
+                if (wordLength == length && buffer.getInt(position) == hash
+                        && matches(buffer.getInt(position + 4), text, start, length)) {
+                    return slot;
+                }
+            }
+        }
+
+        private boolean matches(int offset, CharSequence text, int start, int length) {
+            for (int i = 0; i < length; i++) {
+                if (buffer.getChar(charsStart + (offset + i) * 2) != Character.toLowerCase(text.charAt(start + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public float value(int index) {
+            return buffer.getFloat(HEADER_BYTES + index * SLOT_BYTES + 12);
+        }
+
+        @Override
+        public TreeMap<String, Float> entries() {
+            TreeMap<String, Float> entries = new TreeMap<>();
+            for (int slot = 0; slot <= mask; slot++) {
+                int position = HEADER_BYTES + slot * SLOT_BYTES;
+                if (buffer.getInt(position + 8) != 0) {
+                    entries.put(word(position), buffer.getFloat(position + 12));
+                }
+            }
+            return entries;
+        }
+
+        @Override
+        public long contentHash() {
+            return contentHash;
+        }
+
+        private String word(int position) {
+            int offset = buffer.getInt(position + 4);
+            char[] word = new char[buffer.getInt(position + 8)];
+            for (int i = 0; i < word.length; i++) {
+                word[i] = buffer.getChar(charsStart + (offset + i) * 2);
+            }
+            return new String(word);
+        }
+    }
+}
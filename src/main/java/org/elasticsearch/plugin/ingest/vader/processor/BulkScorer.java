@@ -0,0 +1,353 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.ingest.IngestDocument;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line tool scoring archived documents offline with the {@code vader_analyzer} processor, so that
+ * sentiment can be backfilled without sending every document through the ingest nodes of a cluster.
+ * <p>
+ * Usage: {@code BulkScorer --input_field <field> --target_field <field> [<processor option> <value>]...
+ * [--threads <n>] [--index <index>] [--type <type>] [--id_field <field>] [--lexicon <file>]
+ * [--lexicons <directory>] [--output <file>] <input>...}
+ * <p>
+ * Every input file, {@code -} for the standard input, holds one JSON document per line, and is read through
+ * gzip when its name ends with {@code .gz}. The scored documents are written, to the standard output or to the
+ * output file, gzipped when its name ends with {@code .gz}, as index actions ready to be sent to {@code _bulk}.
+ * Other options are options of the processor, such as {@code cache_size} or {@code output_format}.
+ * {@code lexicon} names the {@value BinaryLexicon#FILE_NAME} installed with the plugin, which is mapped rather
+ * than parsing the lexicon of the VADER library.
+ * <p>
+ * Lines are read in batches of {@value #BATCH_SIZE}, scored on {@code threads} threads, all the processors by
+ * default, and written in the order of the input. At most two batches per thread are in flight, so memory stays
+ * bounded whatever the size of the input. Throughput is reported on the standard error every
+ * {@value #REPORT_INTERVAL_SECONDS} seconds, and documents that fail are reported there and left out of the
+ * output. The exit status is 2 if any document failed.
+ *
+ * @author Animesh Pandey
+ */
+public final class BulkScorer {
+    /**
+     * Number of lines scored together by a thread.
+     */
+    static final int BATCH_SIZE = 500;
+
+    /**
+     * Interval between two reports of the throughput.
+     */
+    static final int REPORT_INTERVAL_SECONDS = 5;
+
+    /**
+     * Tag of the processor, under which its statistics are kept.
+     */
+    static final String TAG = "bulk_scorer";
+
+    private static final String STDIN = "-";
+
+    private final VaderSentimentService vaderSentimentService;
+    private final VaderProcessor processor;
+    private final String index;
+    private final String type;
+    private final String idField;
+
+    /**
+     * @param vaderSentimentService service scoring the documents
+     * @param processor             processor scoring a document
+     * @param index                 index of the index actions, or null to take the index of the {@code _bulk} URL
+     * @param type                  type of the index actions, or null to take the type of the {@code _bulk} URL
+     * @param idField               field holding the identifier of a document, or null to let Elasticsearch
+     *                              generate it
+     */
+    BulkScorer(VaderSentimentService vaderSentimentService, VaderProcessor processor, String index, String type,
+               String idField) {
+        this.vaderSentimentService = vaderSentimentService;
+        this.processor = processor;
+        this.index = index;
+        this.type = type;
+        this.idField = idField;
+    }
+
+    /**
+     * Scores every document of the inputs and writes them to the output.
+     *
+     * @param inputs   files holding one JSON document per line, {@code -} for the standard input
+     * @param output   receives the index actions
+     * @param threads  number of threads scoring documents
+     * @param progress receives the throughput reports and the documents that failed
+     * @return the number of documents that failed
+     * @throws IOException iff an input could not be read or the output could not be written
+     */
+    long run(List<String> inputs, Writer output, int threads, PrintStream progress) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<Batch>> pending = new ArrayDeque<>();
+        Report report = new Report(progress);
+        try {
+            for (String input : inputs) {
+                try (BufferedReader reader = open(input)) {
+                    int lineNumber = 0;
+                    List<String> lines = new ArrayList<>(BATCH_SIZE);
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        lineNumber++;
+                        lines.add(line);
+                        if (lines.size() == BATCH_SIZE) {
+                            submit(executor, pending, input, lineNumber - lines.size() + 1, lines);
+                            lines = new ArrayList<>(BATCH_SIZE);
+                            while (pending.size() >= threads * 2) {
+                                write(pending.removeFirst(), output, report);
+                            }
+                        }
+                    }
+                    if (!lines.isEmpty()) {
+                        submit(executor, pending, input, lineNumber - lines.size() + 1, lines);
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), output, report);
+            }
+            output.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+        report.print(true);
+        return report.failed;
+    }
+
+    private void submit(ExecutorService executor, Deque<Future<Batch>> pending, String input, int firstLine,
+                        List<String> lines) {
+        pending.addLast(executor.submit(() -> score(input, firstLine, lines)));
+    }
+
+    private void write(Future<Batch> future, Writer output, Report report) throws IOException {
+        Batch batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while scoring documents", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to score documents", e.getCause());
+        }
+        output.write(batch.actions.toString());
+        for (String error : batch.errors) {
+            report.progress.println(error);
+        }
+        report.documents += batch.documents;
+        report.failed += batch.errors.size();
+        report.print(false);
+    }
+
+    /**
+     * Scores the documents of a batch of lines and builds their index actions.
+     *
+     * @param input     name of the input holding the lines
+     * @param firstLine number of the first line of the batch in the input
+     * @param lines     lines of the batch, each holding a JSON document or nothing
+     * @return the index actions of the scored documents and the errors of the others
+     */
+    Batch score(String input, int firstLine, List<String> lines) {
+        Batch batch = new Batch();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                Map<String, Object> source = XContentHelper.convertToMap(new BytesArray(line), false).v2();
+                IngestDocument document = new IngestDocument(index, type, null, null, null, null, null, source);
+                processor.execute(document);
+                document.extractMetadata();
+                XContentBuilder action = XContentFactory.jsonBuilder().startObject().startObject("index");
+                if (index != null) {
+                    action.field("_index", index);
+                }
+                if (type != null) {
+                    action.field("_type", type);
+                }
+                if (idField != null && document.hasField(idField)) {
+                    action.field("_id", String.valueOf(document.getFieldValue(idField, Object.class)));
+                }
+                action.endObject().endObject();
+                batch.actions.append(action.string()).append('\n');
+                batch.actions.append(XContentFactory.jsonBuilder().map(document.getSourceAndMetadata()).string())
+                        .append('\n');
+                batch.documents++;
+            } catch (Exception e) {
+                batch.errors.add("[" + input + ":" + (firstLine + i) + "] " + e.getMessage());
+            }
+        }
+        return batch;
+    }
+
+    private static BufferedReader open(String input) throws IOException {
+        InputStream stream = STDIN.equals(input) ? System.in : Files.newInputStream(Paths.get(input));
+        if (input.endsWith(".gz")) {
+            stream = new GZIPInputStream(stream, 1 << 16);
+        }
+        return new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Index actions of the scored documents of a batch, and errors of the documents that failed.
+     */
+    static final class Batch {
+        final StringBuilder actions = new StringBuilder();
+        final List<String> errors = new ArrayList<>();
+        int documents;
+    }
+
+    /**
+     * Throughput of the documents written so far.
+     */
+    private final class Report {
+        private final PrintStream progress;
+        private final long start = System.nanoTime();
+        private long lastReport = start;
+        private long documents;
+        private long failed;
+
+        Report(PrintStream progress) {
+            this.progress = progress;
+        }
+
+        void print(boolean last) {
+            long now = System.nanoTime();
+            if (!last && now - lastReport < TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS)) {
+                return;
+            }
+            lastReport = now;
+            double seconds = Math.max(now - start, 1) / 1e9;
+            ProcessorStats stats = vaderSentimentService.getStats(TAG);
+            progress.println(String.format(Locale.ROOT, "%s%d documents written, %d failed, %d scored, %d skipped "
+                            + "in %.1fs, %.0f documents/s, %.2f MB/s of text", last ? "done: " : "", documents,
+                    failed, stats.getScored(), stats.getSkipped(), seconds, documents / seconds,
+                    stats.getCharacters() / seconds / (1 << 20)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, Object> config = new HashMap<>();
+        List<String> inputs = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        String index = null;
+        String type = null;
+        String idField = null;
+        String lexicon = null;
+        String lexicons = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                inputs.add(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                exit("option [" + arg + "] requires a value");
+            }
+            String name = arg.substring(2);
+            String value = args[++i];
+            switch (name) {
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "output":
+                    output = value;
+                    break;
+                case "index":
+                    index = value;
+                    break;
+                case "type":
+                    type = value;
+                    break;
+                case "id_field":
+                    idField = value;
+                    break;
+                case "lexicon":
+                    lexicon = value;
+                    break;
+                case "lexicons":
+                    lexicons = value;
+                    break;
+                case "input_fields":
+                    config.put(name, Arrays.asList(value.split(",")));
+                    break;
+                default:
+                    config.put(name, "true".equals(value) || "false".equals(value) ? Boolean.valueOf(value) : value);
+            }
+        }
+        if (inputs.isEmpty() || threads < 1) {
+            exit(null);
+        }
+        if (lexicon != null && !Files.isRegularFile(Paths.get(lexicon))) {
+            exit("lexicon [" + lexicon + "] does not exist");
+        }
+
+        VaderSentimentService service = new VaderSentimentService(threads, lexicon == null ? null : Paths.get(lexicon))
+                .start();
+        if (lexicons != null) {
+            service.loadOverlays(Paths.get(lexicons));
+        }
+        VaderProcessor processor = null;
+        try {
+            processor = new VaderProcessor.Factory(service).create(null, TAG, config);
+        } catch (Exception e) {
+            exit(e.getMessage());
+        }
+        if (!config.isEmpty()) {
+            exit("unknown options " + config.keySet());
+        }
+
+        BulkScorer scorer = new BulkScorer(service, processor, index, type, idField);
+        OutputStream stream = output == null ? System.out : Files.newOutputStream(Paths.get(output));
+        if (output != null && output.endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, 1 << 16);
+        }
+        long failed;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16)) {
+            failed = scorer.run(inputs, writer, threads, System.err);
+        }
+        System.exit(failed > 0 ? 2 : 0);
+    }
+
+    private static void exit(String message) {
+        if (message != null) {
+            System.err.println(message);
+        }
+        System.err.println("usage: BulkScorer --input_field <field> --target_field <field> "
+                + "[--<processor option> <value>]... [--threads <n>] [--index <index>] [--type <type>] "
+                + "[--id_field <field>] [--lexicon <file>] [--lexicons <directory>] [--output <file>] <input>...");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,184 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Valence of emoji, indexed by code point, so that the {@link VaderScorer} scores them while it splits a text into
+ * words.
+ * <p>
+ * Emoji of the Basic Multilingual Plane, the symbols and dingbats between {@link #BMP_START} and
+ * {@link #BMP_END}, are read from a dense array. Emoji of the supplementary planes are read from a small open
+ * addressing table. Code points without a valence are NaN.
+ * <p>
+ * The {@link #DEFAULT} table is read once, from the {@code emoji_lexicon.txt} resource, which holds one
+ * {@code <hexadecimal code point><TAB><valence>[<TAB>name]} entry per line. Emoticons made of ASCII characters,
+ * such as {@code :)}, are part of the VADER lexicon itself.
+ *
+ * @author Animesh Pandey
+ */
+final class EmojiTable {
+    /**
+     * First code point of the dense table.
+     */
+    static final int BMP_START = 0x2100;
+
+    /**
+     * Last code point of the dense table.
+     */
+    static final int BMP_END = 0x2BFF;
+
+    /**
+     * Table read from the {@code emoji_lexicon.txt} resource.
+     */
+    static final EmojiTable DEFAULT = loadDefault();
+
+    private static final String RESOURCE = "emoji_lexicon.txt";
+
+    private final float[] bmp = new float[BMP_END - BMP_START + 1];
+    private final int[] keys;
+    private final float[] values;
+    private final int size;
+
+    /**
+     * @param codePoints emoji code points
+     * @param valences   valence of the emoji at the same index
+     */
+    EmojiTable(int[] codePoints, float[] valences) {
+        Arrays.fill(bmp, Float.NaN);
+        int supplementary = 0;
+        for (int codePoint : codePoints) {
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                supplementary++;
+            }
+        }
+        int capacity = Integer.highestOneBit(Math.max(supplementary, 1) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new float[capacity];
+        int count = 0;
+        for (int i = 0; i < codePoints.length; i++) {
+            int codePoint = codePoints[i];
+            if (codePoint >= BMP_START && codePoint <= BMP_END) {
+                if (Float.isNaN(bmp[codePoint - BMP_START])) {
+                    count++;
+                }
+                bmp[codePoint - BMP_START] = valences[i];
+            } else if (Character.isSupplementaryCodePoint(codePoint)) {
+                int slot = slot(codePoint);
+                if (keys[slot] == 0) {
+                    count++;
+                }
+                keys[slot] = codePoint;
+                values[slot] = valences[i];
+            } else {
+                throw new IllegalArgumentException("code point [" + Integer.toHexString(codePoint)
+                        + "] is neither a symbol of the basic multilingual plane nor a supplementary code point");
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * @return number of emoji of the table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true iff the character may start an emoji of the table or a {@link #isModifier(int) modifier}
+     */
+    static boolean mayStartEmoji(char c) {
+        return (c >= BMP_START && (c <= BMP_END || Character.isHighSurrogate(c))) || c == 0xFE0F || c == 0x200D;
+    }
+
+    /**
+     * @return true iff the code point only changes the look of an emoji, as a variation selector, a skin tone or a
+     * zero width joiner does
+     */
+    static boolean isModifier(int codePoint) {
+        return codePoint == 0xFE0F || codePoint == 0x200D || (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF);
+    }
+
+    /**
+     * @return valence of the emoji, or NaN if the code point is not an emoji of the table
+     */
+    float valence(int codePoint) {
+        if (codePoint >= BMP_START && codePoint <= BMP_END) {
+            return bmp[codePoint - BMP_START];
+        }
+        if (!Character.isSupplementaryCodePoint(codePoint)) {
+            return Float.NaN;
+        }
+        int slot = slot(codePoint);
+        return keys[slot] == codePoint ? values[slot] : Float.NaN;
+    }
+
+    /**
+     * @return slot holding the code point, or the empty slot where it goes
+     */
+    private int slot(int codePoint) {
+        int mask = keys.length - 1;
+        int slot = (codePoint * 0x9E3779B9 >>> 16) & mask;
+        while (keys[slot] != 0 && keys[slot] != codePoint) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Reads a table, one {@code <hexadecimal code point><TAB><valence>[<TAB>name]} entry per line.
+     *
+     * @param reader source of the table
+     * @return the loaded table
+     * @throws IOException iff the table could not be read
+     */
+    static EmojiTable read(BufferedReader reader) throws IOException {
+        int[] codePoints = new int[128];
+        float[] valences = new float[128];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            if (columns.length < 2) {
+                throw new IOException("invalid emoji entry [" + line + "]");
+            }
+            if (count == codePoints.length) {
+                codePoints = Arrays.copyOf(codePoints, count * 2);
+                valences = Arrays.copyOf(valences, count * 2);
+            }
+            try {
+                codePoints[count] = Integer.parseInt(columns[0].trim(), 16);
+                valences[count] = Float.parseFloat(columns[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid emoji entry [" + line + "]", e);
+            }
+            count++;
+        }
+        try {
+            return new EmojiTable(Arrays.copyOf(codePoints, count), Arrays.copyOf(valences, count));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static EmojiTable loadDefault() {
+        InputStream stream = EmojiTable.class.getClassLoader().getResourceAsStream(RESOURCE);
+        if (stream == null) {
+            throw new IllegalStateException("could not find [" + RESOURCE + "] on the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not read [" + RESOURCE + "]", e);
+        }
+    }
+}
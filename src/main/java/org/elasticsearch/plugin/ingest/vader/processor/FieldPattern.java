@@ -0,0 +1,118 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Path to a field of the document source, in which a {@code *} element matches every element of an array,
+ * for instance {@code comments.*.text}.
+ * <p>
+ * The source is walked once per pattern and the visitor receives the object holding the field, so that the
+ * processor can read the text and write the polarity next to it without resolving the path again.
+ *
+ * @author Animesh Pandey
+ */
+final class FieldPattern {
+    static final String WILDCARD = "*";
+    private static final String SOURCE_PREFIX = "_source.";
+
+    private final String pattern;
+    private final String[] path;
+
+    private FieldPattern(String pattern, String[] path) {
+        this.pattern = pattern;
+        this.path = path;
+    }
+
+    /**
+     * @param pattern path of the field, {@code *} matching every element of an array
+     * @return the parsed pattern
+     * @throws IllegalArgumentException iff the pattern is not a valid field path
+     */
+    static FieldPattern parse(String pattern) {
+        String field = pattern.startsWith(SOURCE_PREFIX) ? pattern.substring(SOURCE_PREFIX.length()) : pattern;
+        String[] path = field.split("\\.", -1);
+        for (String element : path) {
+            if (element.isEmpty()) {
+                throw new IllegalArgumentException("path [" + pattern + "] is not valid");
+            }
+        }
+        if (WILDCARD.equals(path[path.length - 1])) {
+            throw new IllegalArgumentException("path [" + pattern + "] must end with a field name");
+        }
+        return new FieldPattern(pattern, path);
+    }
+
+    String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return name of the field the pattern points to, within its parent object
+     */
+    String getLeaf() {
+        return path[path.length - 1];
+    }
+
+    /**
+     * Calls the visitor once for every object of the source holding a field matched by this pattern.
+     *
+     * @param source  document source
+     * @param visitor receives each matching field
+     * @return number of matching fields
+     */
+    int visit(Map<String, Object> source, Visitor visitor) {
+        return visit(source, 0, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int visit(Object node, int depth, Visitor visitor) {
+        String element = path[depth];
+        if (depth == path.length - 1) {
+            if (node instanceof Map && ((Map<String, Object>) node).containsKey(element)) {
+                Map<String, Object> parent = (Map<String, Object>) node;
+                visitor.accept(parent, element, parent.get(element));
+                return 1;
+            }
+            return 0;
+        }
+        if (node instanceof Map) {
+            return visit(((Map<String, Object>) node).get(element), depth + 1, visitor);
+        }
+        if (node instanceof List) {
+            List<Object> list = (List<Object>) node;
+            if (WILDCARD.equals(element)) {
+                int visited = 0;
+                for (int i = 0; i < list.size(); i++) {
+                    visited += visit(list.get(i), depth + 1, visitor);
+                }
+                return visited;
+            }
+            int index = parseIndex(element);
+            if (index >= 0 && index < list.size()) {
+                return visit(list.get(index), depth + 1, visitor);
+            }
+        }
+        return 0;
+    }
+
+    private static int parseIndex(String element) {
+        try {
+            return Integer.parseInt(element);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Receives a field matched by a {@link FieldPattern}.
+     */
+    interface Visitor {
+        /**
+         * @param parent object holding the field
+         * @param field  name of the field in {@code parent}
+         * @param value  value of the field
+         */
+        void accept(Map<String, Object> parent, String field, Object value);
+    }
+}
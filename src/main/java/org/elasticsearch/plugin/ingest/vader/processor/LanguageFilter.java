@@ -0,0 +1,170 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Cheap guess of whether a text is English, made before it is scored, since the VADER lexicon only gives
+ * meaningful polarities to English text.
+ * <p>
+ * {@link #detect(CharSequence)} makes a single pass over the first {@value #SAMPLE_CHARS} characters of a text,
+ * without allocating. A text whose letters are mostly outside of the Latin script is {@link Language#OTHER}. A
+ * text in the Latin script is {@link Language#LATIN} when it holds more common words of German, French, Spanish,
+ * Italian, Portuguese or Dutch than common English words, and {@link Language#ENGLISH} otherwise, so that short
+ * and informal texts are given the benefit of the doubt. Words with accented letters only count as foreign along
+ * with a common foreign word, as English borrows them for dishes, places and names.
+ *
+ * @author Animesh Pandey
+ */
+final class LanguageFilter {
+    /**
+     * Number of characters from the start of a text looked at to guess its language.
+     */
+    static final int SAMPLE_CHARS = 1000;
+
+    /**
+     * Guessed language of a text.
+     */
+    enum Language {
+        /**
+         * English, or a text too short or too informal to tell.
+         */
+        ENGLISH,
+        /**
+         * Another language written in the Latin script.
+         */
+        LATIN,
+        /**
+         * A language written in another script, such as Cyrillic, Arabic or Chinese.
+         */
+        OTHER;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final int MAX_WORD_LENGTH = 6;
+
+    private static final int[] ENGLISH_WORDS = words("the", "and", "is", "was", "are", "were", "a", "an", "i", "me",
+            "to", "of", "in", "on", "so", "it", "this", "that", "with", "for", "not", "no", "you", "my", "we", "us",
+            "they", "them", "he", "him", "his", "her", "she", "have", "has", "had", "be", "been", "am", "do", "but",
+            "just", "very", "too", "at", "as", "by", "out", "up", "what", "when", "who", "how", "all", "does", "did",
+            "can", "will", "would", "or", "if", "its", "your", "our", "their", "there", "from", "about", "get",
+            "like", "really", "good", "great", "bad", "love");
+
+    private static final int[] FOREIGN_WORDS = words(
+            // German
+            "der", "die", "das", "und", "ist", "nicht", "ich", "ein", "eine", "mit", "sehr", "auch", "aber", "den",
+            "dem", "sie", "zu", "auf",
+            // French
+            "le", "la", "les", "et", "est", "une", "des", "du", "je", "pas", "pour", "dans", "que", "qui", "ce",
+            "avec", "sur", "tres", "mais", "il", "elle", "nous", "vous", "en", "un",
+            // Spanish
+            "el", "los", "las", "y", "es", "muy", "pero", "por", "con", "una", "lo", "del", "se", "su", "mi", "al",
+            "esta", "como", "para",
+            // Italian
+            "di", "che", "non", "sono", "gli", "della", "questo", "molto", "ma",
+            // Portuguese
+            "os", "um", "uma", "nao", "mas", "em", "da", "muito", "isso",
+            // Dutch
+            "het", "een", "van", "niet", "ik", "zijn", "dat", "op", "voor", "maar", "ook", "wel");
+
+    private final boolean englishOnly;
+    private final String field;
+
+    /**
+     * @param englishOnly whether only the texts guessed to be English are scored
+     * @param field       field receiving the guessed language of the text, or null
+     */
+    LanguageFilter(boolean englishOnly, String field) {
+        this.englishOnly = englishOnly;
+        this.field = field;
+    }
+
+    boolean isEnglishOnly() {
+        return englishOnly;
+    }
+
+    String getField() {
+        return field;
+    }
+
+    /**
+     * @return true iff a text of the given language is scored
+     */
+    boolean accepts(Language language) {
+        return !englishOnly || language == Language.ENGLISH;
+    }
+
+    /**
+     * @param text text to score
+     * @return the guessed language of the text
+     */
+    static Language detect(CharSequence text) {
+        int end = Math.min(text.length(), SAMPLE_CHARS);
+        int letters = 0;
+        int latinLetters = 0;
+        int englishWords = 0;
+        int foreignWords = 0;
+        int accentedWords = 0;
+        int word = 0;
+        int wordLength = 0;
+        boolean accented = false;
+        for (int i = 0; i <= end; i++) {
+            char c = i < end ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                letters++;
+                if (c < 0x80) {
+                    latinLetters++;
+                    if (++wordLength <= MAX_WORD_LENGTH) {
+                        word = (word << 5) | ((c | 0x20) - 'a' + 1);
+                    }
+                } else if (c < 0x250) {
+                    // Latin-1 Supplement and Latin Extended-A and B
+                    latinLetters++;
+                    wordLength++;
+                    accented = true;
+                }
+                continue;
+            }
+            if (accented) {
+                accentedWords++;
+            } else if (wordLength > 0 && wordLength <= MAX_WORD_LENGTH) {
+                if (Arrays.binarySearch(ENGLISH_WORDS, word) >= 0) {
+                    englishWords++;
+                } else if (Arrays.binarySearch(FOREIGN_WORDS, word) >= 0) {
+                    foreignWords++;
+                }
+            }
+            word = 0;
+            wordLength = 0;
+            accented = false;
+        }
+        if (latinLetters * 2 < letters) {
+            return Language.OTHER;
+        }
+        if (foreignWords > 0) {
+            foreignWords += accentedWords;
+        }
+        return foreignWords > englishWords ? Language.LATIN : Language.ENGLISH;
+    }
+
+    /**
+     * @return the sorted codes of lower case ASCII words of at most {@link #MAX_WORD_LENGTH} letters, five bits
+     * per letter
+     */
+    private static int[] words(String... words) {
+        int[] codes = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            int code = 0;
+            for (int j = 0; j < words[i].length(); j++) {
+                code = (code << 5) | (words[i].charAt(j) - 'a' + 1);
+            }
+            codes[i] = code;
+        }
+        Arrays.sort(codes);
+        return codes;
+    }
+}
@@ -0,0 +1,44 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Build-time tool compiling a lexicon in the VADER text format into a {@link BinaryLexicon}, which the plugin
+ * maps in memory instead of parsing the lexicon when a node starts.
+ * <p>
+ * Usage: {@code LexiconCompiler <output> [<text lexicon>]}, the lexicon of the VADER library being compiled when
+ * no text lexicon is given.
+ *
+ * @author Animesh Pandey
+ */
+public final class LexiconCompiler {
+
+    private LexiconCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: LexiconCompiler <output> [<text lexicon>]");
+            System.exit(1);
+        }
+        Path output = Paths.get(args[0]);
+        VaderLexicon lexicon;
+        if (args.length == 2) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+                lexicon = VaderLexicon.read(reader);
+            }
+        } else {
+            lexicon = VaderLexicon.loadDefault();
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        BinaryLexicon.write(lexicon.entries(), output);
+        System.out.println("Compiled " + lexicon.size() + " words into [" + output + "]");
+    }
+}
@@ -0,0 +1,161 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import com.vader.sentiment.util.ScoreType;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Shape in which a polarity is written to the document: the map of the four scores, the compound score alone,
+ * the four scores as sibling fields or a label derived from the compound score.
+ * <p>
+ * Every shape but the map writes its values directly, without building an intermediate map.
+ *
+ * @author Animesh Pandey
+ */
+final class OutputFormat {
+    static final String POSITIVE = "positive";
+    static final String NEUTRAL = "neutral";
+    static final String NEGATIVE = "negative";
+
+    static final double DEFAULT_POSITIVE_THRESHOLD = 0.05;
+    static final double DEFAULT_NEGATIVE_THRESHOLD = -0.05;
+
+    static final OutputFormat MAP = new OutputFormat(Shape.MAP, DEFAULT_POSITIVE_THRESHOLD, DEFAULT_NEGATIVE_THRESHOLD);
+
+    /**
+     * Available shapes, named in lower case in the processor configuration.
+     */
+    enum Shape {
+        MAP, COMPOUND, FLAT, LABEL;
+
+        static Shape parse(String name) {
+            for (Shape shape : values()) {
+                if (shape.toString().equals(name)) {
+                    return shape;
+                }
+            }
+            throw new IllegalArgumentException("must be one of [map, compound, flat, label] but was [" + name + "]");
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Shape shape;
+    private final double positiveThreshold;
+    private final double negativeThreshold;
+
+    /**
+     * @param shape             shape of the output
+     * @param positiveThreshold compound score from which a text is labelled positive
+     * @param negativeThreshold compound score up to which a text is labelled negative
+     */
+    OutputFormat(Shape shape, double positiveThreshold, double negativeThreshold) {
+        this.shape = shape;
+        this.positiveThreshold = positiveThreshold;
+        this.negativeThreshold = negativeThreshold;
+    }
+
+    Shape getShape() {
+        return shape;
+    }
+
+    double getPositiveThreshold() {
+        return positiveThreshold;
+    }
+
+    double getNegativeThreshold() {
+        return negativeThreshold;
+    }
+
+    /**
+     * @param name name of the output field
+     * @return the field that exists iff a polarity was already written under {@code name}
+     */
+    String firstField(String name) {
+        return shape == Shape.FLAT ? name + "_" + ScoreType.COMPOUND : name;
+    }
+
+    /**
+     * @param name name of the output field
+     * @return every field that {@link #write(String, float[], boolean, BiConsumer)} may write under {@code name}
+     */
+    String[] fields(String name) {
+        String truncated = name + "_" + VaderProcessor.TRUNCATED;
+        if (shape == Shape.FLAT) {
+            return new String[]{name + "_" + ScoreType.COMPOUND, name + "_" + ScoreType.POSITIVE,
+                    name + "_" + ScoreType.NEGATIVE, name + "_" + ScoreType.NEUTRAL, truncated};
+        }
+        return new String[]{name, truncated};
+    }
+
+    /**
+     * Writes the polarity under {@code name}, or under {@code name_compound}, {@code name_positive},
+     * {@code name_negative} and {@code name_neutral} for the flat shape. A polarity of part of the text is
+     * flagged with {@link VaderProcessor#TRUNCATED} in the map, or with a {@code name_truncated} sibling.
+     *
+     * @param name      name of the output field
+     * @param polarity  scores indexed as in {@link VaderSentimentService}
+     * @param truncated whether only part of the text was scored
+     * @param sink      receives each field name and value, for instance the setter of the document
+     */
+    void write(String name, float[] polarity, boolean truncated, BiConsumer<String, Object> sink) {
+        switch (shape) {
+            case MAP:
+                Map<String, Float> scores = VaderSentimentService.toMap(polarity);
+                if (truncated) {
+                    Map<String, Object> flagged = new HashMap<>(scores);
+                    flagged.put(VaderProcessor.TRUNCATED, true);
+                    sink.accept(name, flagged);
+                } else {
+                    sink.accept(name, scores);
+                }
+                return;
+            case FLAT:
+                sink.accept(name + "_" + ScoreType.COMPOUND, polarity[VaderSentimentService.COMPOUND]);
+                sink.accept(name + "_" + ScoreType.POSITIVE, polarity[VaderSentimentService.POSITIVE]);
+                sink.accept(name + "_" + ScoreType.NEGATIVE, polarity[VaderSentimentService.NEGATIVE]);
+                sink.accept(name + "_" + ScoreType.NEUTRAL, polarity[VaderSentimentService.NEUTRAL]);
+                break;
+            default:
+                sink.accept(name, value(polarity));
+                break;
+        }
+        if (truncated) {
+            sink.accept(name + "_" + VaderProcessor.TRUNCATED, true);
+        }
+    }
+
+    /**
+     * @param polarity scores indexed as in {@link VaderSentimentService}
+     * @return the polarity as a single value, the map of the scores for the map and flat shapes
+     */
+    Object value(float[] polarity) {
+        switch (shape) {
+            case COMPOUND:
+                return polarity[VaderSentimentService.COMPOUND];
+            case LABEL:
+                return label(polarity[VaderSentimentService.COMPOUND]);
+            default:
+                return VaderSentimentService.toMap(polarity);
+        }
+    }
+
+    /**
+     * @return {@link #POSITIVE}, {@link #NEGATIVE} or {@link #NEUTRAL} depending on the thresholds
+     */
+    String label(float compound) {
+        if (compound >= positiveThreshold) {
+            return POSITIVE;
+        }
+        if (compound <= negativeThreshold) {
+            return NEGATIVE;
+        }
+        return NEUTRAL;
+    }
+}
@@ -0,0 +1,111 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.Arrays;
+
+/**
+ * Running sums from which VADER derives the polarity of a text: the sum of the token sentiments, the
+ * positive and negative sums, the number of neutral tokens and the emphasis punctuation.
+ * <p>
+ * Accumulators of consecutive parts of a text can be merged and then finished into the polarity of the
+ * whole, which is how long texts are scored sentence by sentence.
+ *
+ * @author Animesh Pandey
+ */
+final class PolarityAccumulator {
+    private static final float ALPHA = 15.0F;
+
+    float sum;
+    float positiveSum;
+    float negativeSum;
+    int neutralCount;
+    int tokenCount;
+    int exclamationCount;
+    int questionCount;
+
+    void reset() {
+        sum = 0.0F;
+        positiveSum = 0.0F;
+        negativeSum = 0.0F;
+        neutralCount = 0;
+        tokenCount = 0;
+        exclamationCount = 0;
+        questionCount = 0;
+    }
+
+    /**
+     * Adds the sentiment of one token.
+     */
+    void add(float sentiment) {
+        sum += sentiment;
+        if (sentiment > 0) {
+            positiveSum += sentiment + 1;
+        } else if (sentiment < 0) {
+            negativeSum += sentiment - 1;
+        } else {
+            neutralCount++;
+        }
+        tokenCount++;
+    }
+
+    /**
+     * Adds the sums of another part of the text.
+     */
+    void merge(PolarityAccumulator other) {
+        sum += other.sum;
+        positiveSum += other.positiveSum;
+        negativeSum += other.negativeSum;
+        neutralCount += other.neutralCount;
+        tokenCount += other.tokenCount;
+        exclamationCount += other.exclamationCount;
+        questionCount += other.questionCount;
+    }
+
+    /**
+     * Writes the polarity of the accumulated text to {@code polarity}, indexed by
+     * {@link VaderSentimentService#COMPOUND}, {@link VaderSentimentService#POSITIVE},
+     * {@link VaderSentimentService#NEGATIVE} and {@link VaderSentimentService#NEUTRAL}.
+     */
+    void finish(float[] polarity) {
+        finish(polarity, 0);
+    }
+
+    /**
+     * Writes the polarity of the accumulated text to the four elements of {@code polarities} starting at
+     * {@code offset}, in the order of {@link #finish(float[])}.
+     */
+    void finish(float[] polarities, int offset) {
+        if (tokenCount == 0) {
+            Arrays.fill(polarities, offset, offset + 4, 0.0F);
+            return;
+        }
+        float total = sum;
+        float positive = positiveSum;
+        float negative = negativeSum;
+
+        float emphasis = Math.min(exclamationCount, 4) * 0.292F;
+        if (questionCount > 1) {
+            emphasis += questionCount <= 3 ? questionCount * 0.18F : 0.96F;
+        }
+        if (total > 0) {
+            total += emphasis;
+        } else if (total < 0) {
+            total -= emphasis;
+        }
+        float compound = (float) (total / Math.sqrt(total * total + ALPHA));
+
+        if (positive > Math.abs(negative)) {
+            positive += emphasis;
+        } else if (positive < Math.abs(negative)) {
+            negative -= emphasis;
+        }
+        float weight = positive + Math.abs(negative) + neutralCount;
+        polarities[offset + VaderSentimentService.COMPOUND] = round(compound, 10000.0F);
+        polarities[offset + VaderSentimentService.POSITIVE] = round(Math.abs(positive / weight), 1000.0F);
+        polarities[offset + VaderSentimentService.NEGATIVE] = round(Math.abs(negative / weight), 1000.0F);
+        polarities[offset + VaderSentimentService.NEUTRAL] = round(Math.abs(neutralCount / weight), 1000.0F);
+    }
+
+    private static float round(float value, float scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,261 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of the {@code vader_analyzer} processors sharing a tag.
+ * <p>
+ * Every counter is a striped {@link LongAdder}, so that ingest threads recording concurrently do not contend on
+ * a lock or on a single cache line. Latencies are counted in log-linear buckets, four per power of two, which
+ * bounds the error of a percentile to a quarter of its value. The statistics of several nodes are summed by
+ * {@link #add(ProcessorStats)}, keeping the buckets so that the percentiles of the cluster are computed as well.
+ *
+ * @author Animesh Pandey
+ */
+final class ProcessorStats implements ToXContent, Writeable {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder nonEnglish = new LongAdder();
+    private final LongAdder gated = new LongAdder();
+    private final LongAdder saturated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder characters = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder[] latencies = new LongAdder[BUCKETS];
+
+    ProcessorStats() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Reads the statistics written by {@link #writeTo(StreamOutput)} on another node.
+     */
+    ProcessorStats(StreamInput in) throws IOException {
+        this();
+        scored.add(in.readVLong());
+        skipped.add(in.readVLong());
+        unchanged.add(in.readVLong());
+        nonEnglish.add(in.readVLong());
+        gated.add(in.readVLong());
+        saturated.add(in.readVLong());
+        failed.add(in.readVLong());
+        characters.add(in.readVLong());
+        nanos.add(in.readVLong());
+        for (LongAdder latency : latencies) {
+            latency.add(in.readVLong());
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(getScored());
+        out.writeVLong(getSkipped());
+        out.writeVLong(getUnchanged());
+        out.writeVLong(getNonEnglish());
+        out.writeVLong(getGated());
+        out.writeVLong(getSaturated());
+        out.writeVLong(getFailed());
+        out.writeVLong(getCharacters());
+        out.writeVLong(getNanos());
+        for (LongAdder latency : latencies) {
+            out.writeVLong(latency.sum());
+        }
+    }
+
+    /**
+     * Adds the counters and latencies of other statistics, those of the same tag on another node.
+     */
+    void add(ProcessorStats other) {
+        scored.add(other.getScored());
+        skipped.add(other.getSkipped());
+        unchanged.add(other.getUnchanged());
+        nonEnglish.add(other.getNonEnglish());
+        gated.add(other.getGated());
+        saturated.add(other.getSaturated());
+        failed.add(other.getFailed());
+        characters.add(other.getCharacters());
+        nanos.add(other.getNanos());
+        for (int i = 0; i < BUCKETS; i++) {
+            latencies[i].add(other.latencies[i].sum());
+        }
+    }
+
+    /**
+     * Records a document whose text was scored.
+     *
+     * @param characters number of characters scored
+     * @param nanos      time spent on the document
+     */
+    void scored(long characters, long nanos) {
+        this.scored.increment();
+        this.characters.add(characters);
+        record(nanos);
+    }
+
+    /**
+     * Records a document left untouched, as it had no text worth scoring.
+     */
+    void skipped(long nanos) {
+        this.skipped.increment();
+        record(nanos);
+    }
+
+    /**
+     * Counts a skipped document whose text had the fingerprint stored by a previous run, so that its polarity
+     * was kept. The document itself is recorded by {@link #skipped(long)}.
+     */
+    void unchanged() {
+        this.unchanged.increment();
+    }
+
+    /**
+     * Counts a text left unscored as it was not guessed to be English. The document itself is recorded by
+     * {@link #skipped(long)} or {@link #scored(long, long)}, depending on its other texts.
+     */
+    void nonEnglish() {
+        this.nonEnglish.increment();
+    }
+
+    /**
+     * Counts a text left unscored as it did not meet the conditions of the {@link TextGate} of the processor. The
+     * document itself is recorded by {@link #skipped(long)} or {@link #scored(long, long)}, depending on its other
+     * texts.
+     */
+    void gated() {
+        this.gated.increment();
+    }
+
+    /**
+     * Counts a skipped document that was left unscored as the sentiment thread pool was saturated. The document
+     * itself is recorded by {@link #skipped(long)}.
+     */
+    void saturated() {
+        this.saturated.increment();
+    }
+
+    /**
+     * Records a document on which the processor failed.
+     */
+    void failed(long nanos) {
+        this.failed.increment();
+        record(nanos);
+    }
+
+    private void record(long nanos) {
+        this.nanos.add(nanos);
+        latencies[bucket(nanos)].increment();
+    }
+
+    long getScored() {
+        return scored.sum();
+    }
+
+    long getSkipped() {
+        return skipped.sum();
+    }
+
+    long getUnchanged() {
+        return unchanged.sum();
+    }
+
+    long getNonEnglish() {
+        return nonEnglish.sum();
+    }
+
+    long getGated() {
+        return gated.sum();
+    }
+
+    long getSaturated() {
+        return saturated.sum();
+    }
+
+    long getFailed() {
+        return failed.sum();
+    }
+
+    long getCharacters() {
+        return characters.sum();
+    }
+
+    long getNanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * @param quantile quantile between 0 and 1
+     * @return upper bound of the latency bucket holding the quantile, in nanoseconds, or 0 if nothing was recorded
+     */
+    long percentile(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencies[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field("scored", getScored());
+        builder.field("skipped", getSkipped());
+        builder.field("unchanged", getUnchanged());
+        builder.field("non_english", getNonEnglish());
+        builder.field("gated", getGated());
+        builder.field("saturated", getSaturated());
+        builder.field("failed", getFailed());
+        builder.field("characters", getCharacters());
+        builder.field("time_in_nanos", getNanos());
+        builder.startObject("latency_in_nanos");
+        builder.field("p50", percentile(0.50));
+        builder.field("p99", percentile(0.99));
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,39 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestActions.NodesResponseRestListener;
+
+import java.io.IOException;
+
+/**
+ * Serves the sentiment rollups of the {@code vader_analyzer} processors of the cluster, summed over its nodes and
+ * broken down by node, on {@code GET /_vader/rollups} and, for some processor tags only,
+ * {@code GET /_vader/rollups/{tag}}. The {@code keys} parameter restricts the response to some values of the
+ * rollup field.
+ *
+ * @author Animesh Pandey
+ */
+public class RestVaderRollupsAction extends BaseRestHandler {
+
+    @Inject
+    public RestVaderRollupsAction(Settings settings, RestController controller) {
+        super(settings);
+        controller.registerHandler(RestRequest.Method.GET, "/_vader/rollups", this);
+        controller.registerHandler(RestRequest.Method.GET, "/_vader/rollups/{tag}", this);
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) throws IOException {
+        VaderRollupsAction.Request rollupsRequest = new VaderRollupsAction.Request()
+                .tags(Strings.splitStringByCommaToArray(request.param("tag")))
+                .keys(Strings.splitStringByCommaToArray(request.param("keys")));
+        return channel -> client.execute(VaderRollupsAction.INSTANCE, rollupsRequest,
+                new NodesResponseRestListener<>(channel));
+    }
+}
@@ -0,0 +1,37 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestActions.NodesResponseRestListener;
+
+import java.io.IOException;
+
+/**
+ * Serves the statistics of the {@code vader_analyzer} processors and result caches of the cluster, summed over
+ * its nodes and broken down by node, on {@code GET /_vader/stats} and, for some processor tags only,
+ * {@code GET /_vader/stats/{tag}}.
+ *
+ * @author Animesh Pandey
+ */
+public class RestVaderStatsAction extends BaseRestHandler {
+
+    @Inject
+    public RestVaderStatsAction(Settings settings, RestController controller) {
+        super(settings);
+        controller.registerHandler(RestRequest.Method.GET, "/_vader/stats", this);
+        controller.registerHandler(RestRequest.Method.GET, "/_vader/stats/{tag}", this);
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) throws IOException {
+        VaderStatsAction.Request statsRequest = new VaderStatsAction.Request()
+                .tags(Strings.splitStringByCommaToArray(request.param("tag")));
+        return channel -> client.execute(VaderStatsAction.INSTANCE, statsRequest,
+                new NodesResponseRestListener<>(channel));
+    }
+}
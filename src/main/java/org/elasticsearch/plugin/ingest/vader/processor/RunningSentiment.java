@@ -0,0 +1,148 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running sentiment of a text that only grows by appending, such as a conversation thread, stored in the document
+ * so that a new version of the text is scored from where the previous one left off.
+ * <p>
+ * The text is scored sentence by sentence, as {@link VaderSentimentService#scoreSentences(CharSequence, float[],
+ * java.util.List)} scores it. The state holds the merged sums of its complete sentences, every sentence but
+ * the last, the offset where the last sentence starts and the {@link TextFingerprint} of the text before that
+ * offset, along with the {@link VaderLexicon#getContentHash()} of the lexicon that scored them. A text that still
+ * starts with the same characters, scored with a lexicon of the same words and valences, is scored from that
+ * offset, and merging the new sentences into the stored sums gives exactly the polarity of scoring the whole text
+ * again. Any other text, or a text scored once the lexicon was edited, is scored from its start.
+ *
+ * @author Animesh Pandey
+ */
+final class RunningSentiment {
+    static final String OFFSET = "offset";
+    static final String PREFIX = "prefix";
+    static final String LEXICON = "lexicon";
+    static final String SUM = "sum";
+    static final String POSITIVE_SUM = "positive_sum";
+    static final String NEGATIVE_SUM = "negative_sum";
+    static final String NEUTRAL_COUNT = "neutral_count";
+    static final String TOKEN_COUNT = "token_count";
+    static final String EXCLAMATION_COUNT = "exclamation_count";
+    static final String QUESTION_COUNT = "question_count";
+
+    private final PolarityAccumulator sentences;
+    private final int offset;
+    private final long prefix;
+    private final long lexicon;
+
+    /**
+     * @param sentences sums of the complete sentences
+     * @param offset    offset where the last sentence starts
+     * @param prefix    fingerprint of the text before {@code offset}
+     * @param lexicon   content hash of the lexicon that scored the text
+     */
+    RunningSentiment(PolarityAccumulator sentences, int offset, long prefix, long lexicon) {
+        this.sentences = sentences;
+        this.offset = offset;
+        this.prefix = prefix;
+        this.lexicon = lexicon;
+    }
+
+    /**
+     * @param lexicon lexicon scoring the text
+     * @return the state of a text of which nothing was scored yet
+     */
+    static RunningSentiment empty(VaderLexicon lexicon) {
+        return new RunningSentiment(new PolarityAccumulator(), 0, TextFingerprint.of("", 0, 0),
+                lexicon.getContentHash());
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param text    text to score
+     * @param lexicon lexicon scoring the text
+     * @return true iff the text starts with the complete sentences of this state, scored with a lexicon of the
+     * same content
+     */
+    boolean isContinuedBy(CharSequence text, VaderLexicon lexicon) {
+        return offset <= text.length()
+                && this.lexicon == lexicon.getContentHash()
+                && SentenceSplitter.startsSentence(text, offset)
+                && TextFingerprint.of(text, 0, offset) == prefix;
+    }
+
+    /**
+     * Scores the sentences of the text from {@link #getOffset()} on.
+     *
+     * @param service     service scoring the sentences
+     * @param lexicon  lexicon scoring the sentences
+     * @param text     text continuing the text of this state
+     * @param polarity array of four elements receiving the polarity of the whole text
+     * @return the state of the text
+     */
+    RunningSentiment update(VaderSentimentService service, VaderLexicon lexicon, CharSequence text, float[] polarity) {
+        int[] bounds = SentenceSplitter.split(text, offset);
+        PolarityAccumulator[] scored = service.accumulateSentences(lexicon, text, bounds);
+        PolarityAccumulator complete = new PolarityAccumulator();
+        complete.merge(sentences);
+        for (int i = 0; i < scored.length - 1; i++) {
+            complete.merge(scored[i]);
+        }
+        PolarityAccumulator total = new PolarityAccumulator();
+        total.merge(complete);
+        total.merge(scored[scored.length - 1]);
+        total.finish(polarity);
+        int last = bounds[bounds.length - 2];
+        return new RunningSentiment(complete, last, TextFingerprint.of(text, 0, last), lexicon.getContentHash());
+    }
+
+    /**
+     * @return the state in the form in which it is stored in documents
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> state = new HashMap<>();
+        state.put(OFFSET, offset);
+        state.put(PREFIX, TextFingerprint.toHex(prefix));
+        state.put(LEXICON, TextFingerprint.toHex(lexicon));
+        state.put(SUM, sentences.sum);
+        state.put(POSITIVE_SUM, sentences.positiveSum);
+        state.put(NEGATIVE_SUM, sentences.negativeSum);
+        state.put(NEUTRAL_COUNT, sentences.neutralCount);
+        state.put(TOKEN_COUNT, sentences.tokenCount);
+        state.put(EXCLAMATION_COUNT, sentences.exclamationCount);
+        state.put(QUESTION_COUNT, sentences.questionCount);
+        return state;
+    }
+
+    /**
+     * @param value state stored in a document by {@link #toMap()}
+     * @return the state, or null if the value is not a valid state
+     */
+    static RunningSentiment fromMap(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> state = (Map<?, ?>) value;
+        try {
+            PolarityAccumulator sentences = new PolarityAccumulator();
+            sentences.sum = ((Number) state.get(SUM)).floatValue();
+            sentences.positiveSum = ((Number) state.get(POSITIVE_SUM)).floatValue();
+            sentences.negativeSum = ((Number) state.get(NEGATIVE_SUM)).floatValue();
+            sentences.neutralCount = ((Number) state.get(NEUTRAL_COUNT)).intValue();
+            sentences.tokenCount = ((Number) state.get(TOKEN_COUNT)).intValue();
+            sentences.exclamationCount = ((Number) state.get(EXCLAMATION_COUNT)).intValue();
+            sentences.questionCount = ((Number) state.get(QUESTION_COUNT)).intValue();
+            int offset = ((Number) state.get(OFFSET)).intValue();
+            long prefix = Long.parseUnsignedLong((String) state.get(PREFIX), 16);
+            long lexicon = Long.parseUnsignedLong((String) state.get(LEXICON), 16);
+            if (offset < 0) {
+                return null;
+            }
+            return new RunningSentiment(sentences, offset, prefix, lexicon);
+        } catch (ClassCastException | NullPointerException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+/**
+ * Bounds on the work spent on one text: the number of characters and of words scored, taken from the start of
+ * the text or from both its start and its end, and the time spent on a document.
+ * <p>
+ * A text over the limits is not copied: {@link #truncate(CharSequence)} returns a view of the kept parts, joined
+ * by a line break, which is scored like any other text. A {@link TokenText} is cut between its tokens instead and
+ * stays a {@link TokenText}, so that its tokens are still scored as words of their own; a token is never cut in
+ * two, and one that does not fit within the limits is left out.
+ *
+ * @author Animesh Pandey
+ */
+final class ScoringLimits {
+    static final ScoringLimits NONE = new ScoringLimits(0, 0, false, 0);
+
+    private final int maxChars;
+    private final int maxTokens;
+    private final boolean headAndTail;
+    private final long timeBudgetNanos;
+
+    /**
+     * @param maxChars        maximum number of characters scored, 0 for no limit
+     * @param maxTokens       maximum number of white space separated words, or of tokens of a {@link TokenText},
+     *                        scored, 0 for no limit
+     * @param headAndTail     whether to keep both the start and the end of a long text rather than its start
+     * @param timeBudgetNanos time after which a document is given the score of the part scored so far, 0 for no limit
+     */
+    ScoringLimits(int maxChars, int maxTokens, boolean headAndTail, long timeBudgetNanos) {
+        this.maxChars = maxChars;
+        this.maxTokens = maxTokens;
+        this.headAndTail = headAndTail;
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    int getMaxChars() {
+        return maxChars;
+    }
+
+    int getMaxTokens() {
+        return maxTokens;
+    }
+
+    boolean isHeadAndTail() {
+        return headAndTail;
+    }
+
+    long getTimeBudgetNanos() {
+        return timeBudgetNanos;
+    }
+
+    /**
+     * @param text text to score
+     * @return the text itself if it is within the limits, otherwise a view of the parts of it to score
+     */
+    CharSequence truncate(CharSequence text) {
+        if (maxChars == 0 && maxTokens == 0) {
+            return text;
+        }
+        if (text instanceof TokenText) {
+            return truncate((TokenText) text);
+        }
+        int length = text.length();
+        int headChars = maxChars == 0 ? length : maxChars - (headAndTail ? maxChars / 2 : 0);
+        int headTokens = maxTokens == 0 ? Integer.MAX_VALUE : maxTokens - (headAndTail ? maxTokens / 2 : 0);
+        int headEnd = headEnd(text, headChars, headTokens);
+        int tailStart = length;
+        if (headAndTail) {
+            int tailChars = maxChars == 0 ? length : maxChars / 2;
+            int tailTokens = maxTokens == 0 ? Integer.MAX_VALUE : maxTokens / 2;
+            tailStart = tailStart(text, tailChars, tailTokens);
+        }
+        if (headEnd >= tailStart) {
+            return text;
+        }
+        return new Truncated(text, headEnd, tailStart);
+    }
+
+    /**
+     * @return the tokens themselves if they are within the limits, otherwise the text of the tokens to score
+     */
+    private TokenText truncate(TokenText text) {
+        int length = text.length();
+        int count = text.tokenCount();
+        int headChars = maxChars == 0 ? length : maxChars - (headAndTail ? maxChars / 2 : 0);
+        int headTokens = maxTokens == 0 ? count : maxTokens - (headAndTail ? maxTokens / 2 : 0);
+        int head = 0;
+        // the offset of the next token is one past the separating space after this one
+        while (head < count && head < headTokens && text.offset(head + 1) - 1 <= headChars) {
+            head++;
+        }
+        int tail = count;
+        if (headAndTail) {
+            int tailChars = maxChars == 0 ? length : maxChars / 2;
+            int tailTokens = maxTokens == 0 ? count : maxTokens / 2;
+            while (tail > head && count - tail < tailTokens && length - text.offset(tail - 1) <= tailChars) {
+                tail--;
+            }
+        }
+        if (head == tail) {
+            return text;
+        }
+        return text.keep(head, tail);
+    }
+
+    /**
+     * @return end of the longest start of the text of at most {@code chars} characters and {@code tokens} words,
+     * moved back to the start of a word cut in two if there is one
+     */
+    private static int headEnd(CharSequence text, int chars, int tokens) {
+        int length = text.length();
+        int end = Math.min(chars, length);
+        if (end < length && !Character.isWhitespace(text.charAt(end))) {
+            int wordStart = end;
+            while (wordStart > 0 && !Character.isWhitespace(text.charAt(wordStart - 1))) {
+                wordStart--;
+            }
+            if (wordStart > 0) {
+                end = wordStart;
+            }
+        }
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < end; i++) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inToken) {
+                if (count == tokens) {
+                    return i;
+                }
+                count++;
+            }
+            inToken = !whitespace;
+        }
+        return end;
+    }
+
+    /**
+     * @return start of the longest end of the text of at most {@code chars} characters and {@code tokens} words,
+     * moved forward to the end of a word cut in two if there is one
+     */
+    private static int tailStart(CharSequence text, int chars, int tokens) {
+        int length = text.length();
+        int start = Math.max(length - chars, 0);
+        if (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+            int wordEnd = start;
+            while (wordEnd < length && !Character.isWhitespace(text.charAt(wordEnd))) {
+                wordEnd++;
+            }
+            if (wordEnd < length) {
+                start = wordEnd;
+            }
+        }
+        int count = 0;
+        boolean inToken = false;
+        for (int i = length - 1; i >= start; i--) {
+            boolean whitespace = Character.isWhitespace(text.charAt(i));
+            if (!whitespace && !inToken) {
+                if (count == tokens) {
+                    return i + 1;
+                }
+                count++;
+            }
+            inToken = !whitespace;
+        }
+        return start;
+    }
+
+    /**
+     * View of the text up to {@code headEnd} followed, if the text goes on after {@code tailStart}, by a line
+     * break and the text from {@code tailStart}.
+     */
+    static final class Truncated implements CharSequence {
+        private final CharSequence text;
+        private final int headEnd;
+        private final int tailStart;
+        private final int length;
+
+        Truncated(CharSequence text, int headEnd, int tailStart) {
+            this.text = text;
+            this.headEnd = headEnd;
+            this.tailStart = tailStart;
+            this.length = tailStart < text.length() ? headEnd + 1 + text.length() - tailStart : headEnd;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < headEnd) {
+                return text.charAt(index);
+            }
+            if (index == headEnd) {
+                return '\n';
+            }
+            return text.charAt(tailStart + index - headEnd - 1);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(length).append(this).toString();
+        }
+    }
+}
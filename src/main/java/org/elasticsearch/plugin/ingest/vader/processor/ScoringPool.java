@@ -0,0 +1,176 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the scoring of documents on the {@value VaderSentimentPlugin#THREAD_POOL_NAME} thread pool of the node, so
+ * that sentiment analysis uses a bounded number of threads of its own rather than the threads indexing and
+ * searching documents.
+ * <p>
+ * The calling thread waits for its document to be scored. At most {@code capacity} documents, the size and the
+ * queue size of the pool, are admitted at once. When the pool is saturated, a document is handled according to
+ * its {@link SaturationPolicy}.
+ *
+ * @author Animesh Pandey
+ */
+final class ScoringPool {
+    /**
+     * Returned by {@link #execute(LongSupplier, SaturationPolicy)} when a document was skipped because the pool was
+     * saturated.
+     */
+    static final long SATURATED = -1;
+
+    /**
+     * Time waited under {@link SaturationPolicy#BLOCK} before submitting again a document that the executor
+     * rejected while it held a permit.
+     */
+    private static final long RETRY_NANOS = 1_000_000;
+
+    /**
+     * What happens to a document when the pool is saturated.
+     */
+    enum SaturationPolicy {
+        /**
+         * Wait until the pool admits the document.
+         */
+        BLOCK,
+        /**
+         * Leave the document unscored.
+         */
+        SKIP,
+        /**
+         * Fail the document with an {@link EsRejectedExecutionException}.
+         */
+        REJECT;
+
+        static SaturationPolicy parse(String policy) {
+            for (SaturationPolicy value : values()) {
+                if (value.toString().equals(policy)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("must be one of [block, skip, reject] but was [" + policy + "]");
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int capacity;
+    private final Semaphore permits;
+
+    /**
+     * @param executor executor of the thread pool
+     * @param capacity maximum number of documents running or queued on the executor
+     */
+    ScoringPool(ExecutorService executor, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was [" + capacity + "]");
+        }
+        this.executor = executor;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of documents running or queued on the pool
+     */
+    int getInFlight() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * Runs the task on the pool and waits for its result.
+     *
+     * @param task   scores a document and returns the number of characters scored
+     * @param policy what to do if the pool is saturated
+     * @return the result of the task, or {@link #SATURATED} if the pool was saturated and the policy is
+     * {@link SaturationPolicy#SKIP}
+     */
+    long execute(LongSupplier task, SaturationPolicy policy) {
+        if (policy == SaturationPolicy.BLOCK) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the sentiment thread pool", e);
+            }
+        } else if (!permits.tryAcquire()) {
+            if (policy == SaturationPolicy.SKIP) {
+                return SATURATED;
+            }
+            throw new EsRejectedExecutionException("the sentiment thread pool is saturated with [" + capacity
+                    + "] documents");
+        }
+        try {
+            Future<Long> result;
+            while (true) {
+                try {
+                    result = executor.submit(task::getAsLong);
+                    break;
+                } catch (EsRejectedExecutionException e) {
+                    // the thread of a task that just ended may not have taken the next one from the queue yet
+                    if (policy == SaturationPolicy.SKIP) {
+                        return SATURATED;
+                    }
+                    if (policy == SaturationPolicy.REJECT) {
+                        throw e;
+                    }
+                }
+                // under BLOCK, the document waits for the queue rather than running on the calling thread
+                LockSupport.parkNanos(RETRY_NANOS);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for the sentiment thread pool");
+                }
+            }
+            return await(result);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Waits for the task to end, even if the thread is interrupted, as the task writes to the document.
+     */
+    private static long await(Future<Long> result) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.Arrays;
+
+/**
+ * Splits text into sentences: a sentence ends after a run of {@code .}, {@code !} or {@code ?} followed by
+ * white space, or at a line break. White space between sentences never forms a sentence of its own.
+ *
+ * @author Animesh Pandey
+ */
+final class SentenceSplitter {
+
+    private SentenceSplitter() {
+    }
+
+    /**
+     * @param text text to split
+     * @return offsets of the sentences, sentence {@code i} spanning from {@code bounds[i]} to {@code bounds[i + 1]}
+     */
+    static int[] split(CharSequence text) {
+        return split(text, 0);
+    }
+
+    /**
+     * Splits the text from an offset where a sentence starts, as {@link #split(CharSequence)} splits it after
+     * that offset.
+     *
+     * @param text text to split
+     * @param from offset of the first character to split, the start of a sentence
+     * @return offsets of the sentences, sentence {@code i} spanning from {@code bounds[i]} to {@code bounds[i + 1]}
+     */
+    static int[] split(CharSequence text, int from) {
+        int length = text.length();
+        int[] bounds = new int[16];
+        bounds[0] = from;
+        int count = 1;
+        boolean content = false;
+        for (int i = from; i < length; i++) {
+            char c = text.charAt(i);
+            content |= !Character.isWhitespace(c);
+            int end = -1;
+            if (c == '\n' || c == '\r') {
+                end = i + 1;
+            } else if ((c == '.' || c == '!' || c == '?') && i + 1 < length
+                    && Character.isWhitespace(text.charAt(i + 1))) {
+                end = i + 1;
+            }
+            if (end > 0 && content && end < length) {
+                if (count == bounds.length) {
+                    bounds = Arrays.copyOf(bounds, count << 1);
+                }
+                bounds[count++] = end;
+                content = false;
+            }
+        }
+        if (count == bounds.length) {
+            bounds = Arrays.copyOf(bounds, count + 1);
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @param text text whose sentences before {@code offset} were split by {@link #split(CharSequence)}
+     * @param offset offset in the text
+     * @return true iff a sentence of the text starts at the offset, or the text ends there
+     */
+    static boolean startsSentence(CharSequence text, int offset) {
+        if (offset == 0 || offset == text.length()) {
+            return true;
+        }
+        char c = text.charAt(offset - 1);
+        return c == '\n' || c == '\r'
+                || ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(text.charAt(offset)));
+    }
+}
@@ -0,0 +1,203 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded node-level cache of polarities, keyed by the {@link TextFingerprint} of the text mixed with the
+ * identifier of the lexicon, so that a reloaded lexicon never serves the polarities of its previous version, and
+ * with whether the text is a {@link TokenText}, whose tokens are words of their own even when they hold white space.
+ * <p>
+ * Entries are evicted in LRU order by the Elasticsearch {@link Cache}. Admission is frequency aware, in the
+ * manner of TinyLFU: once the cache is full, a text only replaces an older entry if a small count-min sketch
+ * has seen it before, so a stream of one-off texts can not flush the duplicates that are worth keeping.
+ *
+ * @author Animesh Pandey
+ */
+final class SentimentCache {
+    /**
+     * Mixed into the key of a {@link TokenText}, so that the tokens {@code ["not good"]} and the string
+     * {@code "not good"}, which read the same but score differently, do not share an entry.
+     */
+    private static final long TOKEN_TEXT_SEED = 0xD6E8FEB86659FD93L;
+
+    private final int maxEntries;
+    private final Cache<Long, CachedPolarity> cache;
+    private final FrequencySketch sketch;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    SentimentCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("cache size must be positive but was [" + maxEntries + "]");
+        }
+        this.maxEntries = maxEntries;
+        this.cache = CacheBuilder.<Long, CachedPolarity>builder()
+                .setMaximumWeight(maxEntries)
+                .weigher((key, value) -> 1L)
+                .build();
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * Writes the polarity of the text to {@code polarity}, scoring it with the service on a cache miss.
+     *
+     * @param service  service scoring the text on a miss
+     * @param text     text to score
+     * @param polarity array of at least four elements receiving the scores
+     */
+    void score(VaderSentimentService service, CharSequence text, float[] polarity) {
+        score(service, service.getLexicon(), text, polarity);
+    }
+
+    /**
+     * Writes the polarity of the text with the given lexicon to {@code polarity}, scoring it on a cache miss.
+     *
+     * @param service  service scoring the text on a miss
+     * @param lexicon  lexicon scoring the text
+     * @param text     text to score
+     * @param polarity array of at least four elements receiving the scores
+     */
+    void score(VaderSentimentService service, VaderLexicon lexicon, CharSequence text, float[] polarity) {
+        long fingerprint = TextFingerprint.of(text) ^ (lexicon.getId() * 0x9E3779B97F4A7C15L);
+        if (text instanceof TokenText) {
+            fingerprint ^= TOKEN_TEXT_SEED;
+        }
+        sketch.increment(fingerprint);
+        CachedPolarity cached = cache.get(fingerprint);
+        if (cached != null && cached.length == text.length()) {
+            hits.increment();
+            cached.copyTo(polarity);
+            return;
+        }
+        misses.increment();
+        service.score(lexicon, text, polarity);
+        if (cache.count() < maxEntries || sketch.frequency(fingerprint) > 1) {
+            cache.put(fingerprint, new CachedPolarity(text.length(), polarity));
+        } else {
+            rejections.increment();
+        }
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    int count() {
+        return cache.count();
+    }
+
+    /**
+     * @return number of texts served from the cache
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of texts scored, including those whose fingerprint collided with a cached text of another length
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return cache.stats().getEvictions();
+    }
+
+    /**
+     * @return number of scored texts that were not admitted into the full cache
+     */
+    long rejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Immutable polarity of a cached text. The length of the text guards against fingerprint collisions.
+     */
+    private static final class CachedPolarity {
+        private final int length;
+        private final float compound;
+        private final float positive;
+        private final float negative;
+        private final float neutral;
+
+        CachedPolarity(int length, float[] polarity) {
+            this.length = length;
+            this.compound = polarity[VaderSentimentService.COMPOUND];
+            this.positive = polarity[VaderSentimentService.POSITIVE];
+            this.negative = polarity[VaderSentimentService.NEGATIVE];
+            this.neutral = polarity[VaderSentimentService.NEUTRAL];
+        }
+
+        void copyTo(float[] polarity) {
+            polarity[VaderSentimentService.COMPOUND] = compound;
+            polarity[VaderSentimentService.POSITIVE] = positive;
+            polarity[VaderSentimentService.NEGATIVE] = negative;
+            polarity[VaderSentimentService.NEUTRAL] = neutral;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, halved after every {@code 10 * maxEntries} increments so
+     * that old popularity fades. It is guarded by its own lock, held for a few word updates only, so that
+     * concurrent increments are not lost and a reset never interleaves with them.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L,
+                0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maxEntries) {
+            int length = Integer.highestOneBit(Math.max(maxEntries, 16) - 1) << 1;
+            this.table = new long[length];
+            this.sampleSize = (int) Math.min(10L * maxEntries, Integer.MAX_VALUE);
+        }
+
+        synchronized int frequency(long hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long spread = spread(hash, i);
+                int index = (int) (spread >>> 32) & (table.length - 1);
+                int shift = (int) (spread & 15) << 2;
+                frequency = Math.min(frequency, (int) ((table[index] >>> shift) & 15));
+            }
+            return frequency;
+        }
+
+        synchronized void increment(long hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                long spread = spread(hash, i);
+                int index = (int) (spread >>> 32) & (table.length - 1);
+                int shift = (int) (spread & 15) << 2;
+                if (((table[index] >>> shift) & 15) != 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            additions = 0;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+        }
+
+        private static long spread(long hash, int i) {
+            long h = (hash ^ SEEDS[i]) * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory rollup of the compound polarity of the documents of the {@code vader_analyzer} processors sharing a
+ * tag, keyed by the value of a document field and by time bucket, so that sentiment trends are read without
+ * aggregating the indexed documents.
+ * <p>
+ * Every key of a bucket tracks the count, sum, minimum, maximum and a histogram of the compound polarity in
+ * striped adders and atomic counters, so ingest threads update it without locking. Only the most recent buckets
+ * are retained, and a bucket holds at most {@code maxKeys} keys, any other key being counted under
+ * {@link #OTHER_KEY}. The rollups of a tag on several nodes are summed by {@link #add(SentimentRollup, Collection)}.
+ *
+ * @author Animesh Pandey
+ */
+final class SentimentRollup implements ToXContent, Writeable {
+    /**
+     * Key under which documents are counted once a bucket holds {@code maxKeys} keys.
+     */
+    static final String OTHER_KEY = "_other";
+
+    /**
+     * Number of buckets of the compound histogram, each 0.1 wide from -1 to 1.
+     */
+    static final int HISTOGRAM_BUCKETS = 20;
+
+    private final String field;
+    private final long intervalMillis;
+    private final int retainedBuckets;
+    private final int maxKeys;
+    private final ConcurrentNavigableMap<Long, ConcurrentMap<String, KeyStats>> buckets =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * @param field           document field whose value keys the rollup
+     * @param intervalMillis  width of a time bucket
+     * @param retainedBuckets number of most recent time buckets kept
+     * @param maxKeys         maximum number of keys of a time bucket
+     */
+    SentimentRollup(String field, long intervalMillis, int retainedBuckets, int maxKeys) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval must be positive but was [" + intervalMillis + "]");
+        }
+        if (retainedBuckets <= 0) {
+            throw new IllegalArgumentException("retained buckets must be positive but was [" + retainedBuckets + "]");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("max keys must be positive but was [" + maxKeys + "]");
+        }
+        this.field = field;
+        this.intervalMillis = intervalMillis;
+        this.retainedBuckets = retainedBuckets;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Reads the rollup written by {@link #writeTo(StreamOutput)} on another node.
+     */
+    SentimentRollup(StreamInput in) throws IOException {
+        this(in.readString(), in.readVLong(), in.readVInt(), in.readVInt());
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            long bucketStart = in.readLong();
+            int keys = in.readVInt();
+            ConcurrentMap<String, KeyStats> bucket = new ConcurrentHashMap<>(keys);
+            for (int j = 0; j < keys; j++) {
+                bucket.put(in.readString(), new KeyStats(in));
+            }
+            buckets.put(bucketStart, bucket);
+        }
+    }
+
+    /**
+     * Writes the rollup, which must not be recorded to meanwhile, such as a {@link #copy(Collection)}.
+     */
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(field);
+        out.writeVLong(intervalMillis);
+        out.writeVInt(retainedBuckets);
+        out.writeVInt(maxKeys);
+        out.writeVInt(buckets.size());
+        for (Map.Entry<Long, ConcurrentMap<String, KeyStats>> bucket : buckets.entrySet()) {
+            out.writeLong(bucket.getKey());
+            out.writeVInt(bucket.getValue().size());
+            for (Map.Entry<String, KeyStats> key : bucket.getValue().entrySet()) {
+                out.writeString(key.getKey());
+                key.getValue().writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * @return a new rollup with the settings and the current buckets of this one, restricted to some keys if
+     * {@code keys} is not empty
+     */
+    SentimentRollup copy(Collection<String> keys) {
+        SentimentRollup copy = new SentimentRollup(field, intervalMillis, retainedBuckets, maxKeys);
+        copy.add(this, keys);
+        return copy;
+    }
+
+    /**
+     * Adds the buckets of another rollup, the rollup of the same tag on another node, restricted to some keys if
+     * {@code keys} is not empty. Keys are not capped at {@code maxKeys} here, as every node caps its own.
+     */
+    void add(SentimentRollup other, Collection<String> keys) {
+        for (Map.Entry<Long, ConcurrentMap<String, KeyStats>> bucket : other.buckets.entrySet()) {
+            ConcurrentMap<String, KeyStats> merged = buckets.computeIfAbsent(bucket.getKey(),
+                    bucketStart -> new ConcurrentHashMap<>());
+            for (Map.Entry<String, KeyStats> key : bucket.getValue().entrySet()) {
+                if (keys.isEmpty() || keys.contains(key.getKey())) {
+                    merged.computeIfAbsent(key.getKey(), k -> new KeyStats()).add(key.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the compound polarity of a document to the bucket of its key and time.
+     *
+     * @param key             value of {@link #getField()} in the document
+     * @param compound        compound polarity of the document
+     * @param timestampMillis time of the document, the time it was processed
+     */
+    void record(String key, float compound, long timestampMillis) {
+        long bucketStart = timestampMillis - Math.floorMod(timestampMillis, intervalMillis);
+        ConcurrentMap<String, KeyStats> bucket = buckets.get(bucketStart);
+        if (bucket == null) {
+            ConcurrentMap<String, KeyStats> created = new ConcurrentHashMap<>();
+            bucket = buckets.putIfAbsent(bucketStart, created);
+            if (bucket == null) {
+                bucket = created;
+                buckets.headMap(bucketStart - (retainedBuckets - 1) * intervalMillis).clear();
+            }
+        }
+        KeyStats stats = bucket.get(key);
+        if (stats == null) {
+            stats = bucket.computeIfAbsent(bucket.size() < maxKeys ? key : OTHER_KEY, k -> new KeyStats());
+        }
+        stats.add(compound);
+    }
+
+    String getField() {
+        return field;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    int getRetainedBuckets() {
+        return retainedBuckets;
+    }
+
+    int getMaxKeys() {
+        return maxKeys;
+    }
+
+    /**
+     * @return true iff this rollup was created with the given settings
+     */
+    boolean hasSettings(String field, long intervalMillis, int retainedBuckets, int maxKeys) {
+        return this.field.equals(field) && this.intervalMillis == intervalMillis
+                && this.retainedBuckets == retainedBuckets && this.maxKeys == maxKeys;
+    }
+
+    /**
+     * @return the retained time buckets by start time, holding the statistics of their keys
+     */
+    Map<Long, ConcurrentMap<String, KeyStats>> getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Writes the rollup, restricted to some keys if {@code keys} is not empty.
+     */
+    XContentBuilder toXContent(XContentBuilder builder, Collection<String> keys) throws IOException {
+        builder.startObject();
+        builder.field("field", field);
+        builder.field("interval_in_millis", intervalMillis);
+        builder.startArray("buckets");
+        for (Map.Entry<Long, ConcurrentMap<String, KeyStats>> bucket : buckets.entrySet()) {
+            builder.startObject();
+            builder.field("timestamp", (long) bucket.getKey());
+            builder.startObject("keys");
+            for (Map.Entry<String, KeyStats> key : bucket.getValue().entrySet()) {
+                if (keys.isEmpty() || keys.contains(key.getKey())) {
+                    builder.field(key.getKey());
+                    key.getValue().toXContent(builder, EMPTY_PARAMS);
+                }
+            }
+            builder.endObject();
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        return toXContent(builder, Collections.<String>emptySet());
+    }
+
+    /**
+     * @return index of the histogram bucket counting the compound polarity
+     */
+    static int histogramBucket(float compound) {
+        int bucket = (int) Math.floor((compound + 1.0F) * HISTOGRAM_BUCKETS / 2);
+        return Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, bucket));
+    }
+
+    /**
+     * Compound polarity statistics of one key in one time bucket.
+     */
+    static final class KeyStats implements ToXContent, Writeable {
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        KeyStats() {
+        }
+
+        KeyStats(StreamInput in) throws IOException {
+            count.add(in.readVLong());
+            sum.add(in.readDouble());
+            min.accumulate(in.readDouble());
+            max.accumulate(in.readDouble());
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram.set(i, in.readVLong());
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(getCount());
+            out.writeDouble(getSum());
+            out.writeDouble(getMin());
+            out.writeDouble(getMax());
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                out.writeVLong(histogram.get(i));
+            }
+        }
+
+        /**
+         * Adds the statistics of the same key in the same time bucket on another node.
+         */
+        void add(KeyStats other) {
+            count.add(other.getCount());
+            sum.add(other.getSum());
+            min.accumulate(other.getMin());
+            max.accumulate(other.getMax());
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram.addAndGet(i, other.getHistogram(i));
+            }
+        }
+
+        void add(float compound) {
+            count.increment();
+            sum.add(compound);
+            min.accumulate(compound);
+            max.accumulate(compound);
+            histogram.incrementAndGet(histogramBucket(compound));
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getSum() {
+            return sum.sum();
+        }
+
+        double getMin() {
+            return min.get();
+        }
+
+        double getMax() {
+            return max.get();
+        }
+
+        long getHistogram(int bucket) {
+            return histogram.get(bucket);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            long count = getCount();
+            double sum = getSum();
+            builder.startObject();
+            builder.field("count", count);
+            builder.field("sum", sum);
+            if (count > 0) {
+                builder.field("avg", sum / count);
+                builder.field("min", getMin());
+                builder.field("max", getMax());
+            }
+            builder.startArray("histogram");
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                builder.value(histogram.get(i));
+            }
+            builder.endArray();
+            builder.endObject();
+            return builder;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+/**
+ * 64-bit xxHash (XXH64) of text, computed over the UTF-16LE encoding of its characters
+ * without copying the text into a byte array.
+ *
+ * @author Animesh Pandey
+ */
+final class TextFingerprint {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private TextFingerprint() {
+    }
+
+    /**
+     * @param text text to hash
+     * @return fingerprint of the whole text
+     */
+    static long of(CharSequence text) {
+        return of(text, 0, text.length());
+    }
+
+    /**
+     * @param text  text to hash
+     * @param start offset of the first character to hash
+     * @param end   offset after the last character to hash
+     * @return fingerprint of the characters between {@code start} and {@code end}
+     */
+    static long of(CharSequence text, int start, int end) {
+        int i = start;
+        long hash;
+        if (end - start >= 16) {
+            long v1 = PRIME64_1 + PRIME64_2;
+            long v2 = PRIME64_2;
+            long v3 = 0;
+            long v4 = -PRIME64_1;
+            do {
+                v1 = round(v1, readLong(text, i));
+                v2 = round(v2, readLong(text, i + 4));
+                v3 = round(v3, readLong(text, i + 8));
+                v4 = round(v4, readLong(text, i + 12));
+                i += 16;
+            } while (i + 16 <= end);
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+        hash += (long) (end - start) * 2;
+
+        while (i + 4 <= end) {
+            hash ^= round(0, readLong(text, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            i += 4;
+        }
+        if (i + 2 <= end) {
+            hash ^= (text.charAt(i) | ((long) text.charAt(i + 1) << 16)) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            i += 2;
+        }
+        if (i < end) {
+            char c = text.charAt(i);
+            hash ^= (c & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            hash ^= (c >>> 8) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    /**
+     * @param fingerprint fingerprint returned by {@link #of(CharSequence)}
+     * @return the fingerprint as 16 hexadecimal digits, the form in which it is stored in documents
+     */
+    static String toHex(long fingerprint) {
+        char[] digits = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            digits[i] = Character.forDigit((int) (fingerprint & 15), 16);
+            fingerprint >>>= 4;
+        }
+        return new String(digits);
+    }
+
+    private static long readLong(CharSequence text, int i) {
+        return text.charAt(i) | ((long) text.charAt(i + 1) << 16) | ((long) text.charAt(i + 2) << 32)
+                | ((long) text.charAt(i + 3) << 48);
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME64_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME64_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME64_1 + PRIME64_4;
+    }
+}
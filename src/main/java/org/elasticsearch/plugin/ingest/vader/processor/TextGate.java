@@ -0,0 +1,168 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+/**
+ * Conditions a text has to meet to be worth scoring, beyond holding more than one character: a minimum number of
+ * words, a maximum share of characters that are not letters, and holding more than links and markup.
+ * <p>
+ * {@link #accepts(CharSequence)} makes a single pass over the text, without allocating. The text is read as white
+ * space separated tokens: links ({@code http://}, {@code https://} and {@code www.}), mentions ({@code @user}),
+ * hashtags and markup tags, which may span white space, are markup. A {@code <} only opens a tag when a {@code >}
+ * closes it within {@value #MAX_TAG_CHARS} characters, before any other {@code <}, so that text such as
+ * {@code <wow this is great} stays text. Words are the tokens holding a letter, other
+ * than links, mentions and tags, so that hashtags such as {@code #fail} count as words. Characters of links,
+ * mentions and tags count as characters that are not letters.
+ *
+ * @author Animesh Pandey
+ */
+final class TextGate {
+    static final TextGate NONE = new TextGate(0, 1.0, false);
+
+    /**
+     * Maximum length of a markup tag, attributes included.
+     */
+    static final int MAX_TAG_CHARS = 512;
+
+    private final int minWords;
+    private final double maxNonLetterRatio;
+    private final boolean skipMarkupOnly;
+
+    /**
+     * @param minWords          minimum number of words of a scored text, 0 for no minimum
+     * @param maxNonLetterRatio maximum share of the characters other than white space that are not letters, 1 for
+     *                          no maximum
+     * @param skipMarkupOnly    whether the texts holding nothing but links, mentions, hashtags and tags are skipped
+     */
+    TextGate(int minWords, double maxNonLetterRatio, boolean skipMarkupOnly) {
+        this.minWords = minWords;
+        this.maxNonLetterRatio = maxNonLetterRatio;
+        this.skipMarkupOnly = skipMarkupOnly;
+    }
+
+    int getMinWords() {
+        return minWords;
+    }
+
+    double getMaxNonLetterRatio() {
+        return maxNonLetterRatio;
+    }
+
+    boolean isSkipMarkupOnly() {
+        return skipMarkupOnly;
+    }
+
+    /**
+     * @param text trimmed text of more than one character
+     * @return true iff the text is worth scoring
+     */
+    boolean accepts(CharSequence text) {
+        if (minWords == 0 && maxNonLetterRatio >= 1.0 && !skipMarkupOnly) {
+            return true;
+        }
+        int length = text.length();
+        int words = 0;
+        int contentTokens = 0;
+        int letters = 0;
+        int nonLetters = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int tagEnd = c == '<' ? tagEnd(text, i) : -1;
+            if (tagEnd >= 0) {
+                for (; i <= tagEnd; i++) {
+                    if (!Character.isWhitespace(text.charAt(i))) {
+                        nonLetters++;
+                    }
+                }
+                continue;
+            }
+            int start = i;
+            int tokenLetters = 0;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                if (Character.isLetter(text.charAt(i))) {
+                    tokenLetters++;
+                }
+                i++;
+            }
+            boolean hashtag = c == '#' && i - start > 1;
+            if ((c == '@' && i - start > 1) || isLink(text, start)) {
+                nonLetters += i - start;
+                continue;
+            }
+            if (!hashtag) {
+                contentTokens++;
+            }
+            if (tokenLetters > 0) {
+                words++;
+            }
+            letters += tokenLetters;
+            nonLetters += i - start - tokenLetters;
+        }
+        if (skipMarkupOnly && contentTokens == 0) {
+            return false;
+        }
+        if (words < minWords) {
+            return false;
+        }
+        return nonLetters <= maxNonLetterRatio * (letters + nonLetters);
+    }
+
+    /**
+     * @param start offset of a {@code <}
+     * @return the offset of the {@code >} closing the tag opened at {@code start}, or -1 if no tag is opened there
+     */
+    private static int tagEnd(CharSequence text, int start) {
+        if (start + 1 >= text.length() || !isTagStart(text.charAt(start + 1))) {
+            return -1;
+        }
+        int end = (int) Math.min(text.length(), (long) start + MAX_TAG_CHARS);
+        for (int i = start + 2; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '>') {
+                return i;
+            }
+            if (c == '<') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true iff the character following a {@code <} opens a tag, a closing tag, a comment or a declaration
+     */
+    private static boolean isTagStart(char c) {
+        return Character.isLetter(c) || c == '/' || c == '!';
+    }
+
+    /**
+     * @return true iff the token starting at {@code start} is a link
+     */
+    private static boolean isLink(CharSequence text, int start) {
+        return startsWith(text, start, "http://") || startsWith(text, start, "https://")
+                || startsWith(text, start, "www.");
+    }
+
+    /**
+     * @param prefix lower case ASCII prefix
+     * @return true iff the text holds the prefix at {@code start}, regardless of case
+     */
+    private static boolean startsWith(CharSequence text, int start, String prefix) {
+        if (text.length() - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = text.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c | 0x20);
+            }
+            if (c != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
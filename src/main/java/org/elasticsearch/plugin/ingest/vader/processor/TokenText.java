@@ -0,0 +1,206 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Text that was tokenized before it reached the processor, as a list of tokens or as a string whose tokens are
+ * separated by a configured separator.
+ * <p>
+ * The tokens are not copied: each one is kept as a span of its source, trimmed of white space, and empty tokens
+ * are dropped. As a {@link CharSequence}, the text reads as the tokens joined by single spaces, so that the
+ * gate, the language filter, the fingerprint and the cache see it as any other text. The {@link VaderScorer}
+ * takes every token as a word of its own instead of splitting the text on white space again.
+ *
+ * @author Animesh Pandey
+ */
+final class TokenText implements CharSequence {
+    private CharSequence[] sources;
+    private int[] starts;
+    private int[] ends;
+
+    /**
+     * Offset of every token in the joined text, followed by the length of the joined text plus one.
+     */
+    private int[] offsets;
+    private int count;
+
+    /**
+     * Token of the last character read, as characters are mostly read in order. Only a hint, checked before use.
+     */
+    private int lastToken;
+
+    private TokenText(int capacity) {
+        sources = new CharSequence[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        offsets = new int[capacity + 1];
+    }
+
+    /**
+     * @param tokens tokens of the text, elements other than strings are ignored
+     * @return the text made of the tokens
+     */
+    static TokenText of(List<?> tokens) {
+        TokenText text = new TokenText(Math.max(tokens.size(), 1));
+        for (Object token : tokens) {
+            if (token instanceof CharSequence) {
+                CharSequence source = (CharSequence) token;
+                text.add(source, 0, source.length());
+            }
+        }
+        return text.finish();
+    }
+
+    /**
+     * @param text      text holding the tokens
+     * @param separator non empty string separating the tokens
+     * @return the text made of the tokens
+     */
+    static TokenText split(CharSequence text, String separator) {
+        TokenText tokens = new TokenText(16);
+        int start = 0;
+        int length = text.length();
+        int last = length - separator.length();
+        for (int i = 0; i <= last; i++) {
+            if (regionEquals(text, i, separator)) {
+                tokens.add(text, start, i);
+                i += separator.length() - 1;
+                start = i + 1;
+            }
+        }
+        tokens.add(text, start, length);
+        return tokens.finish();
+    }
+
+    private static boolean regionEquals(CharSequence text, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(offset + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(CharSequence source, int start, int end) {
+        while (start < end && Character.isWhitespace(source.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(source.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return;
+        }
+        if (count == starts.length) {
+            sources = Arrays.copyOf(sources, count << 1);
+            starts = Arrays.copyOf(starts, count << 1);
+            ends = Arrays.copyOf(ends, count << 1);
+            offsets = Arrays.copyOf(offsets, (count << 1) + 1);
+        }
+        sources[count] = source;
+        starts[count] = start;
+        ends[count] = end;
+        offsets[count + 1] = offsets[count] + end - start + 1;
+        count++;
+    }
+
+    private TokenText finish() {
+        if (count == 0) {
+            // the joined text is empty rather than a single separating space
+            offsets[0] = 1;
+        }
+        return this;
+    }
+
+    /**
+     * @param head number of tokens kept from the start
+     * @param tail index of the first token kept after them, {@link #tokenCount()} to keep none
+     * @return the text made of the kept tokens, which are not copied either
+     */
+    TokenText keep(int head, int tail) {
+        TokenText kept = new TokenText(Math.max(head + count - tail, 1));
+        for (int i = 0; i < head; i++) {
+            kept.add(sources[i], starts[i], ends[i]);
+        }
+        for (int i = tail; i < count; i++) {
+            kept.add(sources[i], starts[i], ends[i]);
+        }
+        return kept.finish();
+    }
+
+    /**
+     * @return number of tokens
+     */
+    int tokenCount() {
+        return count;
+    }
+
+    /**
+     * @return offset of the token in the joined text
+     */
+    int offset(int token) {
+        return offsets[token];
+    }
+
+    /**
+     * @return text holding the token
+     */
+    CharSequence source(int token) {
+        return sources[token];
+    }
+
+    /**
+     * @return offset of the first character of the token in its {@link #source(int)}
+     */
+    int start(int token) {
+        return starts[token];
+    }
+
+    /**
+     * @return offset after the last character of the token in its {@link #source(int)}
+     */
+    int end(int token) {
+        return ends[token];
+    }
+
+    /**
+     * @return the token holding the character at the offset of the joined text, or preceding it if the character
+     * is a separating space
+     */
+    int tokenAt(int index) {
+        int token = lastToken;
+        if (token < count && offsets[token] <= index && index < offsets[token + 1]) {
+            return token;
+        }
+        token = Arrays.binarySearch(offsets, 0, count + 1, index);
+        token = token >= 0 ? token : -token - 2;
+        lastToken = token;
+        return token;
+    }
+
+    @Override
+    public int length() {
+        return offsets[count] - 1;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("index [" + index + "] is out of [0, " + length() + ")");
+        }
+        int token = tokenAt(index);
+        int i = starts[token] + index - offsets[token];
+        return i < ends[token] ? sources[token].charAt(i) : ' ';
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(this).toString();
+    }
+}
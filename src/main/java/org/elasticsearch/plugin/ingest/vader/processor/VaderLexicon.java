@@ -0,0 +1,374 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only copy of the VADER lexicon, booster words and negation words.
+ * <p>
+ * It is loaded once by {@link VaderSentimentService#start()} and shared by every processor on the node.
+ * Words are kept in a sorted {@code String[]} with a parallel {@code float[]} of valences so that a lookup
+ * is a binary search over the characters of the text itself and never builds a substring. The lexicon may
+ * also be read from a {@link BinaryLexicon} mapped in memory, which is faster to open and kept off the heap.
+ * <p>
+ * Overlays of domain specific words are merged into a copy by {@link #withOverlay(BufferedReader)}, a lexicon
+ * is never modified once built.
+ *
+ * @author Animesh Pandey
+ */
+final class VaderLexicon {
+
+    /**
+     * Names under which the lexicon of the VADER library can be found on the classpath.
+     */
+    private static final String[] LEXICON_RESOURCES = {"vader_sentiment_lexicon.txt", "vader_lexicon.txt"};
+
+    /**
+     * Increment added by a booster word such as "very".
+     */
+    static final float B_INCR = 0.293F;
+
+    /**
+     * Decrement added by a dampener word such as "barely".
+     */
+    static final float B_DECR = -0.293F;
+
+    /**
+     * Booster and dampener words of VADER.
+     */
+    static final WordTable BOOSTERS = WordTable.of(new TreeMap<String, Float>() {{
+        for (String word : new String[]{"absolutely", "amazingly", "awfully", "completely", "considerably",
+                "decidedly", "deeply", "effing", "enormously", "entirely", "especially", "exceptionally",
+                "extremely", "fabulously", "flipping", "flippin", "fricking", "frickin", "frigging", "friggin",
+                "fully", "fucking", "greatly", "hella", "highly", "hugely", "incredibly", "intensely", "majorly",
+                "more", "most", "particularly", "purely", "quite", "really", "remarkably", "so", "substantially",
+                "thoroughly", "totally", "tremendously", "uber", "unbelievably", "unusually", "utterly", "very"}) {
+            put(word, B_INCR);
+        }
+        for (String word : new String[]{"almost", "barely", "hardly", "just enough", "kind of", "kinda", "kindof",
+                "kind-of", "less", "little", "marginally", "occasionally", "partly", "scarcely", "slightly",
+                "somewhat", "sort of", "sorta", "sortof", "sort-of"}) {
+            put(word, B_DECR);
+        }
+    }});
+
+    /**
+     * Words that negate the valence of the words following them.
+     */
+    static final WordTable NEGATIONS = WordTable.of(new TreeMap<String, Float>() {{
+        for (String word : new String[]{"aint", "arent", "cannot", "cant", "couldnt", "darent", "didnt", "doesnt",
+                "ain't", "aren't", "can't", "couldn't", "daren't", "didn't", "doesn't", "dont", "hadnt", "hasnt",
+                "havent", "isnt", "mightnt", "mustnt", "neither", "don't", "hadn't", "hasn't", "haven't", "isn't",
+                "mightn't", "mustn't", "neednt", "needn't", "never", "none", "nope", "nor", "not", "nothing",
+                "nowhere", "oughtnt", "shant", "shouldnt", "uhuh", "wasnt", "werent", "oughtn't", "shan't",
+                "shouldn't", "uh-uh", "wasn't", "weren't", "without", "wont", "wouldnt", "won't", "wouldn't",
+                "rarely", "seldom", "despite"}) {
+            put(word, -1.0F);
+        }
+    }});
+
+    /**
+     * Idioms whose valence replaces the valence of the words they are made of.
+     */
+    static final WordTable SPECIAL_CASE_IDIOMS = WordTable.of(new TreeMap<String, Float>() {{
+        put("the shit", 3.0F);
+        put("the bomb", 3.0F);
+        put("bad ass", 1.5F);
+        put("yeah right", -2.0F);
+        put("cut the mustard", 2.0F);
+        put("kiss of death", -1.5F);
+        put("hand to mouth", -2.0F);
+    }});
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final Table words;
+    private final long id;
+    /**
+     * Hash of the words, computed on first use since it walks every word of a table that is not mapped, and only
+     * read once {@link #hashed} is set.
+     */
+    private long contentHash;
+    private volatile boolean hashed;
+
+    private VaderLexicon(Table words) {
+        this.words = words;
+        this.id = IDS.incrementAndGet();
+    }
+
+    /**
+     * Loads the lexicon shipped with the VADER library.
+     *
+     * @return the loaded lexicon
+     * @throws IOException iff the lexicon could not be found or read
+     */
+    static VaderLexicon loadDefault() throws IOException {
+        ClassLoader classLoader = VaderLexicon.class.getClassLoader();
+        for (String resource : LEXICON_RESOURCES) {
+            InputStream stream = classLoader.getResourceAsStream(resource);
+            if (stream != null) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                    return read(reader);
+                }
+            }
+        }
+        throw new IOException("could not find the VADER lexicon on the classpath");
+    }
+
+    /**
+     * Maps a lexicon compiled by {@link LexiconCompiler} in memory.
+     *
+     * @param file compiled lexicon
+     * @return the mapped lexicon
+     * @throws IOException iff the file could not be mapped or is not a compiled lexicon
+     */
+    static VaderLexicon map(Path file) throws IOException {
+        return new VaderLexicon(BinaryLexicon.map(file));
+    }
+
+    /**
+     * Reads a lexicon in the VADER text format, one {@code word<TAB>valence[<TAB>...]} entry per line.
+     *
+     * @param reader source of the lexicon
+     * @return the loaded lexicon
+     * @throws IOException iff the lexicon could not be read
+     */
+    static VaderLexicon read(BufferedReader reader) throws IOException {
+        return new VaderLexicon(WordTable.of(readEntries(reader, false)));
+    }
+
+    /**
+     * Reads an overlay in the VADER text format and merges it into a copy of this lexicon. Words of the
+     * overlay are added, or replace the valence of the same word, and are matched regardless of case.
+     *
+     * @param reader source of the overlay
+     * @return the merged lexicon
+     * @throws IOException iff the overlay could not be read
+     */
+    VaderLexicon withOverlay(BufferedReader reader) throws IOException {
+        TreeMap<String, Float> entries = words.entries();
+        entries.putAll(readEntries(reader, true));
+        return new VaderLexicon(WordTable.of(entries));
+    }
+
+    private static TreeMap<String, Float> readEntries(BufferedReader reader, boolean lowerCase) throws IOException {
+        TreeMap<String, Float> entries = new TreeMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] columns = line.split("\t");
+            if (columns.length < 2) {
+                throw new IOException("invalid lexicon entry [" + line + "]");
+            }
+            try {
+                String word = columns[0].trim();
+                entries.put(lowerCase ? word.toLowerCase(Locale.ROOT) : word, Float.parseFloat(columns[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid valence in lexicon entry [" + line + "]", e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return identifier unique to this lexicon among the lexicons loaded by the node
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * @return hash of the words and valences of the lexicon, the same on every node and after every reload for
+     * the same content, unlike {@link #getId()}
+     */
+    long getContentHash() {
+        if (!hashed) {
+            contentHash = words.contentHash();
+            hashed = true;
+        }
+        return contentHash;
+    }
+
+    /**
+     * @return hash of one word and its valence, summed over the words by {@link Table#contentHash()} so that the
+     * hash of a lexicon does not depend on the order in which its words are stored
+     */
+    static long entryHash(CharSequence word, float valence) {
+        long hash = (TextFingerprint.of(word) ^ Float.floatToIntBits(valence)) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * @return number of words in the lexicon
+     */
+    int size() {
+        return words.size();
+    }
+
+    /**
+     * Finds the lower-cased text between {@code start} and {@code end} in the lexicon.
+     *
+     * @param text  text containing the word
+     * @param start offset of the first character of the word
+     * @param end   offset after the last character of the word
+     * @return index of the word, or a negative value if it is not in the lexicon
+     */
+    int find(CharSequence text, int start, int end) {
+        return words.find(text, start, end);
+    }
+
+    /**
+     * @param index index returned by {@link #find(CharSequence, int, int)}
+     * @return valence of the word at that index
+     */
+    float valence(int index) {
+        return words.value(index);
+    }
+
+    /**
+     * @return a new mutable map of the words and their valences
+     */
+    TreeMap<String, Float> entries() {
+        return words.entries();
+    }
+
+    /**
+     * Words of a lexicon with their valences, looked up directly in the text.
+     */
+    interface Table {
+        /**
+         * @return number of words
+         */
+        int size();
+
+        /**
+         * @return index of the lower-cased text between {@code start} and {@code end}, or a negative value if
+         * it is absent
+         */
+        int find(CharSequence text, int start, int end);
+
+        /**
+         * @param index index returned by {@link #find(CharSequence, int, int)}
+         * @return value of the word at that index
+         */
+        float value(int index);
+
+        /**
+         * @return a new mutable map of the words and their values
+         */
+        TreeMap<String, Float> entries();
+
+        /**
+         * @return sum of the {@link #entryHash(CharSequence, float)} of every word, read from the header of a
+         * compiled lexicon
+         */
+        long contentHash();
+    }
+
+    /**
+     * Sorted words with a parallel array of values.
+     */
+    static final class WordTable implements Table {
+        private final String[] keys;
+        private final float[] values;
+
+        private WordTable(String[] keys, float[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        static WordTable of(TreeMap<String, Float> entries) {
+            String[] keys = new String[entries.size()];
+            float[] values = new float[entries.size()];
+            int i = 0;
+            for (Map.Entry<String, Float> entry : entries.entrySet()) {
+                keys[i] = entry.getKey();
+                values[i] = entry.getValue();
+                i++;
+            }
+            return new WordTable(keys, values);
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public TreeMap<String, Float> entries() {
+            TreeMap<String, Float> entries = new TreeMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                entries.put(keys[i], values[i]);
+            }
+            return entries;
+        }
+
+        @Override
+        public float value(int index) {
+            return values[index];
+        }
+
+        @Override
+        public long contentHash() {
+            long hash = 0;
+            for (int i = 0; i < keys.length; i++) {
+                hash += entryHash(keys[i], values[i]);
+            }
+            return hash;
+        }
+
+        @Override
+        public int find(CharSequence text, int start, int end) {
+            return find(text, start, end, true);
+        }
+
+        /**
+         * Binary search for the text between {@code start} and {@code end}, in the order of
+         * {@link String#compareTo(String)}.
+         *
+         * @return index of the word, or a negative value if it is absent
+         */
+        int find(CharSequence text, int start, int end, boolean lowerCase) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(keys[mid], text, start, end, lowerCase);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private static int compare(String key, CharSequence text, int start, int end, boolean lowerCase) {
+            int length = end - start;
+            int limit = Math.min(key.length(), length);
+            for (int i = 0; i < limit; i++) {
+                char c = text.charAt(start + i);
+                if (lowerCase) {
+                    c = Character.toLowerCase(c);
+                }
+                int diff = key.charAt(i) - c;
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return key.length() - length;
+        }
+    }
+}
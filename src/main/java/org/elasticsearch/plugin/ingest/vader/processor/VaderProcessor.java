@@ -1,12 +1,16 @@
 package org.elasticsearch.plugin.ingest.vader.processor;
 
 import com.vader.sentiment.analyzer.SentimentAnalyzer;
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.ingest.AbstractProcessor;
 import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,12 +22,12 @@ import java.util.Map;
 public final class VaderProcessor extends AbstractProcessor {
 
     /**
-     * This is wrapper around the {@link SentimentAnalyzer} which helps in making it thread safe
-     * as the original implementation is not thread safe.
+     * This service scores text with the rules of the {@link SentimentAnalyzer}, keeping one
+     * scorer per thread as the scorer is not thread safe.
      * <p>
      * This class helps in calculating the value of the text associated with the
      * {@link org.elasticsearch.plugin.ingest.vader.processor.VaderProcessor#sourceField}
-     * and then sets the result obtained from {@link SentimentAnalyzer#getPolarity()}
+     * and then sets the result obtained from {@link VaderSentimentService#apply(String)}
      * to the field {@link org.elasticsearch.plugin.ingest.vader.processor.VaderProcessor#targetField}.
      * <p>
      * Ref:
@@ -39,6 +43,17 @@ public final class VaderProcessor extends AbstractProcessor {
      */
     public static final String TYPE = "vader_analyzer";
 
+    /**
+     * Key added to a polarity computed on part of the text only.
+     */
+    static final String TRUNCATED = "truncated";
+
+    /**
+     * Suffix of the field set next to the target field of a document left unscored as the sentiment thread pool
+     * was saturated.
+     */
+    static final String SATURATED_SUFFIX = "_saturated";
+
     /**
      * field name which will be processed in this processor.
      */
@@ -50,6 +65,20 @@ public final class VaderProcessor extends AbstractProcessor {
      */
     private final String targetField;
 
+    /**
+     * Paths of the fields processed in one pass when the processor is configured with
+     * {@code input_fields} instead of {@code input_field}, null otherwise.
+     * <p>
+     * The polarity of a field {@code parent.field} is written to {@code parent.<targetField>.field}.
+     */
+    private final List<FieldPattern> sourceFields;
+
+    /**
+     * Field receiving the average polarity of all {@link #sourceFields}, weighted by the length
+     * of their text, or null if no aggregate is wanted.
+     */
+    private final String aggregateField;
+
     /**
      * If in the input document the {@link org.elasticsearch.plugin.ingest.vader.processor.VaderProcessor#sourceField}
      * does not exist, you either ignore that document or throw an exception.
@@ -58,6 +87,81 @@ public final class VaderProcessor extends AbstractProcessor {
      */
     private final boolean ignoreMissing;
 
+    /**
+     * Node-level cache of the polarity of texts already scored, or null when caching is disabled.
+     */
+    private final SentimentCache cache;
+
+    /**
+     * Texts of at least this many characters are scored sentence by sentence in parallel,
+     * 0 disables sentence scoring.
+     */
+    private final int sentenceThreshold;
+
+    /**
+     * Field receiving the polarity of every sentence of a text scored sentence by sentence, or null.
+     */
+    private final String sentenceField;
+
+    /**
+     * Bounds on the characters, words and time spent on the text of a document.
+     */
+    private final ScoringLimits limits;
+
+    /**
+     * Shape in which polarities are written to the document.
+     */
+    private final OutputFormat outputFormat;
+
+    /**
+     * Name of the lexicon overlay scoring the text, or null for the default lexicon.
+     */
+    private final String lexiconName;
+
+    /**
+     * Field holding the {@link TextFingerprint} of the scored text, so that a document whose text did not change
+     * is not scored again when it goes through the pipeline again, or null.
+     */
+    private final String fingerprintField;
+
+    /**
+     * Guesses the language of the texts, to skip or tag those that are not English, or null.
+     */
+    private final LanguageFilter languageFilter;
+
+    /**
+     * Conditions a text has to meet to be scored.
+     */
+    private final TextGate gate;
+
+    /**
+     * What to do when the dedicated thread pool is saturated, or null to score on the calling thread.
+     */
+    private final ScoringPool.SaturationPolicy saturationPolicy;
+
+    /**
+     * Separator of the tokens of a text tokenized upstream, or null. Lists of tokens are scored whether or not it
+     * is set.
+     */
+    private final String tokenSeparator;
+
+    /**
+     * Field holding the {@link RunningSentiment} of a text that grows by appending, so that only its new sentences
+     * are scored when the document goes through the pipeline again, or null.
+     */
+    private final String stateField;
+
+    /**
+     * Statistics shared by the processors with the tag of this processor.
+     */
+    private final ProcessorStats stats;
+
+    /**
+     * Rollup of the compound polarity of the documents, shared by the processors with the tag of this processor,
+     * or null when no rollup is kept.
+     */
+    private final SentimentRollup rollup;
+
     /**
      * Parameterised constructor for current processor.
      * This sets the values for all the field in this class.
@@ -70,11 +174,63 @@ public final class VaderProcessor extends AbstractProcessor {
      */
     public VaderProcessor(VaderSentimentService vaderSentimentService, String tag, String sourceField,
                           String targetField, boolean ignoreMissing) {
+        this(vaderSentimentService, tag, sourceField, null, targetField, null, ignoreMissing, null, 0, null,
+                ScoringLimits.NONE, OutputFormat.MAP, null, null, null, null, TextGate.NONE, null, null,
+                null);
+    }
+
+    /**
+     * Constructor used by the {@link Factory}, exactly one of {@code sourceField} and {@code sourceFields} is set.
+     *
+     * @param vaderSentimentService library that will help in performing sentiment analysis
+     * @param tag                   Tag of the current processor
+     * @param sourceField           field in input document that will be processed
+     * @param sourceFields          fields in input document that will be processed in one pass
+     * @param targetField           field that will be added to the current document
+     * @param aggregateField        field receiving the weighted average polarity of {@code sourceFields}
+     * @param ignoreMissing         flag specified to make the processor to ignore invalid documents
+     * @param cache                 cache of already scored texts, null to score every text
+     * @param sentenceThreshold     length from which texts are scored sentence by sentence, 0 to disable it
+     * @param sentenceField         field receiving the polarity of each sentence, or null
+     * @param limits                bounds on the work spent on the text of a document
+     * @param outputFormat          shape in which polarities are written
+     * @param lexiconName           name of the lexicon overlay scoring the text, or null for the default lexicon
+     * @param rollup                rollup receiving the compound polarity of the documents, or null
+     * @param fingerprintField      field holding the fingerprint of the scored text, or null
+     * @param languageFilter        filter of the texts that are not English, or null
+     * @param gate                  conditions a text has to meet to be scored
+     * @param saturationPolicy      what to do when the dedicated thread pool is saturated, or null to score on the
+     *                              calling thread
+     * @param tokenSeparator        separator of the tokens of a text tokenized upstream, or null
+     * @param stateField            field holding the running sentiment of the text, or null
+     */
+    VaderProcessor(VaderSentimentService vaderSentimentService, String tag, String sourceField,
+                   List<FieldPattern> sourceFields, String targetField, String aggregateField,
+                   boolean ignoreMissing, SentimentCache cache, int sentenceThreshold, String sentenceField,
+                   ScoringLimits limits, OutputFormat outputFormat, String lexiconName, SentimentRollup rollup,
+                   String fingerprintField, LanguageFilter languageFilter, TextGate gate,
+                   ScoringPool.SaturationPolicy saturationPolicy, String tokenSeparator, String stateField) {
         super(tag);
         this.vaderSentimentService = vaderSentimentService;
         this.sourceField = sourceField;
+        this.sourceFields = sourceFields;
         this.targetField = targetField;
+        this.aggregateField = aggregateField;
         this.ignoreMissing = ignoreMissing;
+        this.cache = cache;
+        this.sentenceThreshold = sentenceThreshold;
+        this.sentenceField = sentenceField;
+        this.limits = limits;
+        this.outputFormat = outputFormat;
+        this.lexiconName = lexiconName;
+        this.stats = vaderSentimentService.getStats(tag);
+        this.rollup = rollup;
+        this.fingerprintField = fingerprintField;
+        this.languageFilter = languageFilter;
+        this.gate = gate;
+        this.saturationPolicy = saturationPolicy;
+        this.tokenSeparator = tokenSeparator;
+        this.stateField = stateField;
     }
 
     /**
@@ -99,54 +255,396 @@ public final class VaderProcessor extends AbstractProcessor {
      *
      * @param document  Current document
      * @param fieldName processable field.
+     * @return true iff the field exists
      */
-    private void validateProcessableField(IngestDocument document, String fieldName) {
-        if (!document.hasField(fieldName, true) && !this.ignoreMissing) {
+    private boolean validateProcessableField(IngestDocument document, String fieldName) {
+        if (document.hasField(fieldName, true)) {
+            return true;
+        }
+        if (!this.ignoreMissing) {
             throw new IllegalArgumentException("field [" + fieldName + "] doesn't exist");
         }
+        return false;
     }
 
     /**
-     * Executes the processor on the incoming document.
+     * Executes the processor on the incoming document, on the dedicated thread pool of the node if the processor
+     * has a {@link #saturationPolicy}.
      *
      * @param document Current document.
      */
     @Override
     public void execute(IngestDocument document) {
+        long start = System.nanoTime();
+        long characters;
+        try {
+            VaderLexicon lexicon = this.vaderSentimentService.getLexicon(this.lexiconName);
+            ScoringPool pool = this.saturationPolicy == null ? null : this.vaderSentimentService.getScoringPool();
+            if (pool == null) {
+                characters = executeOnDocument(document, lexicon, start);
+            } else {
+                // the time budget starts once a thread of the pool picks the document, not while it waits in the queue
+                characters = pool.execute(() -> executeOnDocument(document, lexicon, System.nanoTime()),
+                        this.saturationPolicy);
+            }
+        } catch (RuntimeException e) {
+            this.stats.failed(System.nanoTime() - start);
+            throw e;
+        }
+        if (characters == ScoringPool.SATURATED) {
+            document.setFieldValue(this.targetField + SATURATED_SUFFIX, true);
+            this.stats.saturated();
+            this.stats.skipped(System.nanoTime() - start);
+        } else if (characters > 0) {
+            this.stats.scored(characters, System.nanoTime() - start);
+        } else {
+            this.stats.skipped(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Scores {@link #sourceFields} or {@link #sourceField}.
+     *
+     * @param document Current document.
+     * @param lexicon  lexicon scoring the text
+     * @param start    value of {@link System#nanoTime()} when the document started being scored, the start of its
+     *                 time budget
+     * @return number of characters scored, 0 if the document was skipped
+     */
+    private long executeOnDocument(IngestDocument document, VaderLexicon lexicon, long start) {
+        return this.sourceFields != null ? executeOnFields(document, lexicon, start)
+                : executeOnField(document, lexicon, start);
+    }
+
+    /**
+     * Scores {@link #sourceField}.
+     *
+     * @param document Current document.
+     * @param lexicon  lexicon scoring the text
+     * @param start    value of {@link System#nanoTime()} when the document started being scored, the start of its
+     *                 time budget
+     * @return number of characters scored, 0 if the document was skipped
+     */
+    private long executeOnField(IngestDocument document, VaderLexicon lexicon, long start) {
         /**
          * Validate the current document.
          */
-        validateProcessableField(document, this.sourceField);
-        validateTargetField(document, this.targetField);
+        if (!validateProcessableField(document, this.sourceField)) {
+            return 0;
+        }
+        Object value = document.getFieldValue(this.sourceField, Object.class);
+        CharSequence fullText = text(value);
+        Object previousState = this.stateField != null && document.hasField(this.stateField)
+                ? document.getFieldValue(this.stateField, Object.class) : null;
 
         /**
-         * If correctly validated, retrieve the value of the sourceField.
+         * A polarity written along with the fingerprint of the text is kept if the text did not change,
+         * and replaced otherwise.
          */
-        Object value = document.getFieldValue(this.sourceField, Object.class);
+        String fingerprint = null;
+        if (this.fingerprintField != null && fullText != null) {
+            fingerprint = TextFingerprint.toHex(TextFingerprint.of(fullText));
+            if (document.hasField(this.fingerprintField)) {
+                if (fingerprint.equals(document.getFieldValue(this.fingerprintField, Object.class))
+                        && document.hasField(this.outputFormat.firstField(this.targetField), true)) {
+                    this.stats.unchanged();
+                    return 0;
+                }
+                removePreviousOutput(document);
+            }
+        }
+        /**
+         * The polarity written along with a running sentiment is replaced by the polarity of the grown text.
+         */
+        if (previousState != null) {
+            removePreviousOutput(document);
+        }
+        validateTargetField(document, this.outputFormat.firstField(this.targetField));
+        if (this.sentenceField != null) {
+            validateTargetField(document, this.sentenceField);
+        }
+        String languageField = this.languageFilter == null ? null : this.languageFilter.getField();
+        if (languageField != null) {
+            validateTargetField(document, languageField);
+        }
 
         /**
-         * Make sure that the value of sourceField is a String and then perform the
+         * Make sure that the value of sourceField is a String or a list of tokens and then perform the
          * processing on its value.
          */
-        if (value != null && value instanceof String) {
-            try {
-                String fullText = value.toString().trim();
+        if (fullText != null) {
+            /**
+             * Perform processing only if the text length is greater than 1 character.
+             */
+            if (fullText.length() > 1) {
+                if (!this.gate.accepts(fullText)) {
+                    this.stats.gated();
+                    return 0;
+                }
                 /**
-                 * Perform processing only if the text length is greater than 1 character.
+                 * Guess the language of the text before spending time on scoring it.
                  */
-                if (fullText.length() > 1) {
-                    Map<String, Float> polarity = this.vaderSentimentService.apply(fullText);
-                    try {
-                        document.setFieldValue(this.targetField, polarity);
-                    } catch (Exception e) {
-                        document.setFieldValue(this.sourceField, value);
-                        throw e;
+                LanguageFilter.Language language = null;
+                if (this.languageFilter != null) {
+                    language = LanguageFilter.detect(fullText);
+                    if (!this.languageFilter.accepts(language)) {
+                        if (languageField != null) {
+                            document.setFieldValue(languageField, language.toString());
+                        }
+                        this.stats.nonEnglish();
+                        return 0;
+                    }
+                }
+                List<float[]> sentences = this.sentenceField == null ? null : new ArrayList<>();
+                CharSequence scoredText = this.limits.truncate(fullText);
+                float[] polarity = new float[4];
+                boolean truncated = false;
+                RunningSentiment state = null;
+                long scored = scoredText.length();
+                if (this.stateField != null) {
+                    RunningSentiment running = RunningSentiment.fromMap(previousState);
+                    if (running == null || !running.isContinuedBy(fullText, lexicon)) {
+                        running = RunningSentiment.empty(lexicon);
+                    }
+                    state = running.update(this.vaderSentimentService, lexicon, fullText, polarity);
+                    scored -= running.getOffset();
+                } else {
+                    truncated = score(lexicon, scoredText, sentences, start, polarity) || scoredText != fullText;
+                }
+                try {
+                    this.outputFormat.write(this.targetField, polarity, truncated, document::setFieldValue);
+                    if (sentences != null && !sentences.isEmpty()) {
+                        List<Object> sentenceValues = new ArrayList<>(sentences.size());
+                        for (float[] sentence : sentences) {
+                            sentenceValues.add(this.outputFormat.value(sentence));
+                        }
+                        document.setFieldValue(this.sentenceField, sentenceValues);
+                    }
+                    if (languageField != null) {
+                        document.setFieldValue(languageField, language.toString());
+                    }
+                    if (fingerprint != null) {
+                        document.setFieldValue(this.fingerprintField, fingerprint);
+                    }
+                    if (state != null) {
+                        document.setFieldValue(this.stateField, state.toMap());
+                    }
+                } catch (Exception e) {
+                    document.setFieldValue(this.sourceField, value);
+                    throw e;
+                }
+                recordRollup(document, polarity[VaderSentimentService.COMPOUND]);
+                return scored;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the polarity, sentences, language, fingerprint and running sentiment written by a previous run on a
+     * text that has changed since.
+     *
+     * @param document Current document.
+     */
+    private void removePreviousOutput(IngestDocument document) {
+        for (String field : this.outputFormat.fields(this.targetField)) {
+            if (document.hasField(field, true)) {
+                document.removeField(field);
+            }
+        }
+        if (this.sentenceField != null && document.hasField(this.sentenceField, true)) {
+            document.removeField(this.sentenceField);
+        }
+        if (this.languageFilter != null && this.languageFilter.getField() != null
+                && document.hasField(this.languageFilter.getField(), true)) {
+            document.removeField(this.languageFilter.getField());
+        }
+        if (this.fingerprintField != null && document.hasField(this.fingerprintField)) {
+            document.removeField(this.fingerprintField);
+        }
+        if (this.stateField != null && document.hasField(this.stateField)) {
+            document.removeField(this.stateField);
+        }
+    }
+
+    /**
+     * Scores every field matched by {@link #sourceFields} in a single pass over the document source.
+     * <p>
+     * The texts are collected first, and those that are neither cached, scored sentence by sentence nor chunked
+     * by the time budget are then scored as one batch by {@link VaderSentimentService#scoreAll(List, float[])}.
+     * The document is only changed once every field has been scored, so that a missing field or an existing
+     * target leaves it as it was.
+     *
+     * @param document Current document.
+     * @param lexicon  lexicon scoring the text
+     * @param start    value of {@link System#nanoTime()} when the document started being scored, the start of its
+     *                 time budget
+     * @return number of characters scored, 0 if no field had text to score
+     */
+    private long executeOnFields(IngestDocument document, VaderLexicon lexicon, long start) {
+        if (this.aggregateField != null) {
+            validateTargetField(document, this.outputFormat.firstField(this.aggregateField));
+        }
+        List<FieldText> fields = new ArrayList<>();
+        List<CharSequence> batch = new ArrayList<>();
+        Map<String, Object> source = document.getSourceAndMetadata();
+        for (FieldPattern pattern : this.sourceFields) {
+            int visited = pattern.visit(source, (parent, field, value) -> {
+                CharSequence fullText = text(value);
+                if (fullText != null) {
+                    if (fullText.length() > 1) {
+                        if (!this.gate.accepts(fullText)) {
+                            this.stats.gated();
+                            return;
+                        }
+                        if (this.languageFilter != null
+                                && !this.languageFilter.accepts(LanguageFilter.detect(fullText))) {
+                            this.stats.nonEnglish();
+                            return;
+                        }
+                        CharSequence scoredText = this.limits.truncate(fullText);
+                        int batchIndex = -1;
+                        if (isBatched(scoredText)) {
+                            batchIndex = batch.size();
+                            batch.add(scoredText);
+                        }
+                        checkTarget(parent, pattern);
+                        fields.add(new FieldText(parent, field, scoredText, scoredText != fullText, batchIndex));
                     }
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+            });
+            if (visited == 0 && !this.ignoreMissing) {
+                throw new IllegalArgumentException("field [" + pattern.getPattern() + "] doesn't exist");
+            }
+        }
+
+        float[] batchPolarities = new float[batch.size() * 4];
+        if (!batch.isEmpty()) {
+            this.vaderSentimentService.scoreAll(lexicon, batch, batchPolarities);
+        }
+        float[] aggregate = new float[4];
+        long aggregateLength = 0;
+        for (FieldText field : fields) {
+            float[] polarity = new float[4];
+            boolean truncated = field.truncated;
+            if (field.batchIndex >= 0) {
+                System.arraycopy(batchPolarities, field.batchIndex * 4, polarity, 0, 4);
+            } else {
+                truncated |= score(lexicon, field.text, null, start, polarity);
+            }
+            this.outputFormat.write(field.name, polarity, truncated, targetMap(field.parent)::put);
+            for (int i = 0; i < aggregate.length; i++) {
+                aggregate[i] += polarity[i] * field.text.length();
             }
+            aggregateLength += field.text.length();
+        }
+        if (aggregateLength > 0) {
+            for (int i = 0; i < aggregate.length; i++) {
+                float mean = aggregate[i] / aggregateLength;
+                float scale = i == VaderSentimentService.COMPOUND ? 10000.0F : 1000.0F;
+                aggregate[i] = Math.round(mean * scale) / scale;
+            }
+            if (this.aggregateField != null) {
+                this.outputFormat.write(this.aggregateField, aggregate, false, document::setFieldValue);
+            }
+            recordRollup(document, aggregate[VaderSentimentService.COMPOUND]);
+        }
+        return aggregateLength;
+    }
+
+    /**
+     * @param value value of a source field
+     * @return the trimmed text of a string, split on the {@link #tokenSeparator} if any, the text made of a list of
+     * tokens, or null if the value holds no text
+     */
+    private CharSequence text(Object value) {
+        if (value instanceof String) {
+            String text = value.toString().trim();
+            return this.tokenSeparator == null ? text : TokenText.split(text, this.tokenSeparator);
         }
+        if (value instanceof List) {
+            return TokenText.of((List<?>) value);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the compound polarity of the document to the {@link #rollup}, under the value of its rollup field.
+     * Documents without that field are not rolled up.
+     *
+     * @param document Current document.
+     * @param compound compound polarity of the document, the weighted average of its fields with {@code input_fields}
+     */
+    private void recordRollup(IngestDocument document, float compound) {
+        if (this.rollup == null || !document.hasField(this.rollup.getField())) {
+            return;
+        }
+        Object key = document.getFieldValue(this.rollup.getField(), Object.class);
+        if (key != null) {
+            this.rollup.record(key.toString(), compound, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Throws iff the polarity of the field matched by {@code pattern} in {@code parent} can not be written next to it.
+     */
+    @SuppressWarnings("unchecked")
+    private void checkTarget(Map<String, Object> parent, FieldPattern pattern) {
+        Object target = parent.get(this.targetField);
+        if (target != null
+                && (!(target instanceof Map) || ((Map<String, Object>) target).containsKey(pattern.getLeaf()))) {
+            throw new IllegalArgumentException("field [" + this.targetField + "." + pattern.getLeaf()
+                    + "] already exists next to [" + pattern.getPattern() + "]");
+        }
+    }
+
+    /**
+     * @return the object receiving the polarities of the fields held by {@code parent}, created if needed
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> targetMap(Map<String, Object> parent) {
+        return (Map<String, Object>) parent.computeIfAbsent(this.targetField, key -> new HashMap<String, Object>());
+    }
+
+    /**
+     * @return true iff {@link #score(VaderLexicon, CharSequence, List, long, float[])} would score the text
+     * as a whole, without cache, so that it can be scored in a batch instead
+     */
+    private boolean isBatched(CharSequence text) {
+        return this.cache == null
+                && (this.sentenceThreshold <= 0 || text.length() < this.sentenceThreshold)
+                && (this.limits.getTimeBudgetNanos() <= 0
+                || text.length() <= VaderSentimentService.SENTENCE_CHUNK_CHARS);
+    }
+
+    /**
+     * Scores the text, served from the {@link #cache} when possible.
+     * <p>
+     * With a time budget, texts longer than a chunk of sentences are scored chunk by chunk, bypassing the cache,
+     * until the budget of the document is spent.
+     *
+     * @param lexicon   lexicon scoring the text
+     * @param text      text to score
+     * @param sentences receives the polarity of each sentence if the text is scored sentence by sentence, or null
+     * @param start     value of {@link System#nanoTime()} when the document started being scored, the start of
+     *                  its time budget
+     * @param polarity  array of four elements receiving the polarity of the text
+     * @return true iff the time budget ran out before the whole text was scored
+     */
+    private boolean score(VaderLexicon lexicon, CharSequence text, List<float[]> sentences, long start,
+                          float[] polarity) {
+        if (this.sentenceThreshold > 0 && text.length() >= this.sentenceThreshold) {
+            this.vaderSentimentService.scoreSentences(lexicon, text, polarity, sentences);
+        } else if (this.limits.getTimeBudgetNanos() > 0
+                && text.length() > VaderSentimentService.SENTENCE_CHUNK_CHARS) {
+            long deadline = start + this.limits.getTimeBudgetNanos();
+            return !this.vaderSentimentService.scoreWithin(lexicon, text, deadline, polarity);
+        } else if (this.cache == null) {
+            this.vaderSentimentService.score(lexicon, text, polarity);
+        } else {
+            this.cache.score(this.vaderSentimentService, lexicon, text, polarity);
+        }
+        return false;
     }
 
     /**
@@ -167,10 +665,97 @@ public final class VaderProcessor extends AbstractProcessor {
         return targetField;
     }
 
+    List<FieldPattern> getSourceFields() {
+        return sourceFields;
+    }
+
+    String getAggregateField() {
+        return aggregateField;
+    }
+
+    int getSentenceThreshold() {
+        return sentenceThreshold;
+    }
+
+    String getSentenceField() {
+        return sentenceField;
+    }
+
     boolean isIgnoreMissing() {
         return ignoreMissing;
     }
 
+    SentimentCache getCache() {
+        return cache;
+    }
+
+    ScoringLimits getLimits() {
+        return limits;
+    }
+
+    OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    String getLexiconName() {
+        return lexiconName;
+    }
+
+    ProcessorStats getStats() {
+        return stats;
+    }
+
+    SentimentRollup getRollup() {
+        return rollup;
+    }
+
+    String getFingerprintField() {
+        return fingerprintField;
+    }
+
+    LanguageFilter getLanguageFilter() {
+        return languageFilter;
+    }
+
+    TextGate getGate() {
+        return gate;
+    }
+
+    ScoringPool.SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    String getTokenSeparator() {
+        return tokenSeparator;
+    }
+
+    String getStateField() {
+        return stateField;
+    }
+
+    /**
+     * Text of a field matched by {@link #sourceFields}, collected before the texts are scored.
+     */
+    private static final class FieldText {
+        private final Map<String, Object> parent;
+        private final String name;
+        private final CharSequence text;
+        private final boolean truncated;
+
+        /**
+         * Index of the text in the batch scored at once, or -1 if it is scored on its own.
+         */
+        private final int batchIndex;
+
+        FieldText(Map<String, Object> parent, String name, CharSequence text, boolean truncated, int batchIndex) {
+            this.parent = parent;
+            this.name = name;
+            this.text = text;
+            this.truncated = truncated;
+            this.batchIndex = batchIndex;
+        }
+    }
+
     /**
      * This class creates a factory of processors.
      */
@@ -193,10 +778,303 @@ public final class VaderProcessor extends AbstractProcessor {
         @Override
         public VaderProcessor create(Map<String, Processor.Factory> processorFactories, String processorTag,
                                      Map<String, Object> config) throws Exception {
-            String sourceField = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "input_field");
+            String sourceField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config, "input_field");
+            List<String> sourceFieldNames = ConfigurationUtils.readOptionalList(TYPE, processorTag, config, "input_fields");
             String targetField = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "target_field");
+            String aggregateField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "aggregate_field");
             boolean ignoreMissing = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config, "ignore_missing", false);
-            return new VaderProcessor(this.vaderSentimentService, processorTag, sourceField, targetField, ignoreMissing);
+            int cacheSize = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "cache_size", 0);
+            if (cacheSize < 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "cache_size",
+                        "must not be negative");
+            }
+
+            int sentenceThreshold = ConfigurationUtils.readIntProperty(TYPE, processorTag, config,
+                    "sentence_threshold", 0);
+            if (sentenceThreshold < 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "sentence_threshold",
+                        "must not be negative");
+            }
+            String sentenceField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "sentence_field");
+            if (sentenceField != null && sentenceThreshold == 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "sentence_field",
+                        "requires [sentence_threshold]");
+            }
+
+            String fingerprintField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "fingerprint_field");
+            boolean englishOnly = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config,
+                    "english_only", false);
+            String languageField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "language_field");
+            String tokenSeparator = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "token_separator");
+            if (tokenSeparator != null && tokenSeparator.isEmpty()) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "token_separator",
+                        "must not be empty");
+            }
+            ScoringLimits limits = readLimits(processorTag, config);
+            String stateField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "state_field");
+            if (stateField != null) {
+                if (sentenceThreshold > 0) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "state_field",
+                            "can not be combined with [sentence_threshold]");
+                }
+                if (limits != ScoringLimits.NONE) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "state_field",
+                            "can not be combined with [max_chars], [max_tokens] or [time_budget]");
+                }
+                if (cacheSize > 0) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "state_field",
+                            "can not be combined with [cache_size]");
+                }
+            }
+            TextGate gate = readGate(processorTag, config);
+            ScoringPool.SaturationPolicy saturationPolicy = readSaturationPolicy(processorTag, config);
+            OutputFormat outputFormat = readOutputFormat(processorTag, config);
+            String lexiconName = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config, "lexicon");
+            if (lexiconName != null) {
+                try {
+                    this.vaderSentimentService.getLexicon(lexiconName);
+                } catch (IllegalArgumentException e) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "lexicon",
+                            e.getMessage() + ", available lexicons are "
+                                    + this.vaderSentimentService.getOverlayNames());
+                }
+            }
+
+            List<FieldPattern> sourceFields = null;
+            if (sourceFieldNames != null) {
+                if (sourceField != null) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "input_fields",
+                            "can not be combined with [input_field]");
+                }
+                if (sentenceField != null) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "sentence_field",
+                            "can not be combined with [input_fields]");
+                }
+                if (fingerprintField != null) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "fingerprint_field",
+                            "can not be combined with [input_fields]");
+                }
+                if (languageField != null) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "language_field",
+                            "can not be combined with [input_fields]");
+                }
+                if (stateField != null) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "state_field",
+                            "can not be combined with [input_fields]");
+                }
+                if (sourceFieldNames.isEmpty()) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "input_fields",
+                            "must not be empty");
+                }
+                sourceFields = new ArrayList<>(sourceFieldNames.size());
+                for (String sourceFieldName : sourceFieldNames) {
+                    try {
+                        sourceFields.add(FieldPattern.parse(sourceFieldName));
+                    } catch (IllegalArgumentException e) {
+                        throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "input_fields",
+                                e.getMessage());
+                    }
+                }
+            } else if (sourceField == null) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "input_field",
+                        "required property is missing");
+            } else if (aggregateField != null) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "aggregate_field",
+                        "requires [input_fields]");
+            }
+
+            SentimentCache cache = cacheSize == 0 ? null : this.vaderSentimentService.getCache(cacheSize);
+            SentimentRollup rollup = readRollup(processorTag, config);
+            LanguageFilter languageFilter = englishOnly || languageField != null
+                    ? new LanguageFilter(englishOnly, languageField) : null;
+            return new VaderProcessor(this.vaderSentimentService, processorTag, sourceField, sourceFields,
+                    targetField, aggregateField, ignoreMissing, cache, sentenceThreshold, sentenceField, limits,
+                    outputFormat, lexiconName, rollup, fingerprintField, languageFilter, gate,
+                    saturationPolicy, tokenSeparator, stateField);
+        }
+
+        private SentimentRollup readRollup(String processorTag, Map<String, Object> config) {
+            String rollupField = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "rollup_field");
+            String interval = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "rollup_interval",
+                    "1m");
+            int retainedBuckets = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "rollup_buckets", 60);
+            int maxKeys = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "rollup_max_keys", 10000);
+            long intervalMillis;
+            try {
+                intervalMillis = TimeValue.parseTimeValue(interval, null, "rollup_interval").millis();
+            } catch (ElasticsearchParseException e) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "rollup_interval",
+                        e.getMessage());
+            }
+            if (intervalMillis <= 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "rollup_interval",
+                        "must be positive");
+            }
+            if (retainedBuckets <= 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "rollup_buckets",
+                        "must be positive");
+            }
+            if (maxKeys <= 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "rollup_max_keys",
+                        "must be positive");
+            }
+            if (rollupField == null) {
+                return null;
+            }
+            if (processorTag == null) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, null, "rollup_field",
+                        "requires the processor to have a [tag]");
+            }
+            try {
+                return this.vaderSentimentService.getRollup(processorTag, rollupField, intervalMillis,
+                        retainedBuckets, maxKeys);
+            } catch (IllegalArgumentException e) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "rollup_field",
+                        e.getMessage());
+            }
+        }
+
+        private static OutputFormat readOutputFormat(String processorTag, Map<String, Object> config) {
+            OutputFormat.Shape shape;
+            try {
+                shape = OutputFormat.Shape.parse(ConfigurationUtils.readStringProperty(TYPE, processorTag, config,
+                        "output_format", OutputFormat.Shape.MAP.toString()));
+            } catch (IllegalArgumentException e) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "output_format",
+                        e.getMessage());
+            }
+            double positiveThreshold = readThreshold(processorTag, config, "positive_threshold",
+                    OutputFormat.DEFAULT_POSITIVE_THRESHOLD, shape);
+            double negativeThreshold = readThreshold(processorTag, config, "negative_threshold",
+                    OutputFormat.DEFAULT_NEGATIVE_THRESHOLD, shape);
+            if (negativeThreshold >= positiveThreshold) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "negative_threshold",
+                        "must be lower than [positive_threshold]");
+            }
+            if (shape == OutputFormat.Shape.MAP) {
+                return OutputFormat.MAP;
+            }
+            return new OutputFormat(shape, positiveThreshold, negativeThreshold);
+        }
+
+        private static double readThreshold(String processorTag, Map<String, Object> config, String name,
+                                            double defaultValue, OutputFormat.Shape shape) {
+            Object value = config.remove(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            if (shape != OutputFormat.Shape.LABEL) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, name,
+                        "requires [output_format] to be [label]");
+            }
+            double threshold;
+            try {
+                threshold = value instanceof Number ? ((Number) value).doubleValue()
+                        : Double.parseDouble(value.toString());
+            } catch (NumberFormatException e) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, name,
+                        "must be a number but was [" + value + "]");
+            }
+            if (threshold < -1.0 || threshold > 1.0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, name,
+                        "must be between -1 and 1");
+            }
+            return threshold;
+        }
+
+        private static ScoringPool.SaturationPolicy readSaturationPolicy(String processorTag,
+                                                                         Map<String, Object> config) {
+            boolean dedicatedThreadPool = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config,
+                    "dedicated_thread_pool", false);
+            String onSaturation = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "on_saturation");
+            if (onSaturation == null) {
+                return dedicatedThreadPool ? ScoringPool.SaturationPolicy.BLOCK : null;
+            }
+            if (!dedicatedThreadPool) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "on_saturation",
+                        "requires [dedicated_thread_pool]");
+            }
+            try {
+                return ScoringPool.SaturationPolicy.parse(onSaturation);
+            } catch (IllegalArgumentException e) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "on_saturation",
+                        e.getMessage());
+            }
+        }
+
+        private static TextGate readGate(String processorTag, Map<String, Object> config) {
+            int minWords = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "min_words", 0);
+            if (minWords < 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "min_words",
+                        "must not be negative");
+            }
+            double maxNonLetterRatio = 1.0;
+            Object value = config.remove("max_non_letter_ratio");
+            if (value != null) {
+                try {
+                    maxNonLetterRatio = value instanceof Number ? ((Number) value).doubleValue()
+                            : Double.parseDouble(value.toString());
+                } catch (NumberFormatException e) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "max_non_letter_ratio",
+                            "must be a number but was [" + value + "]");
+                }
+                if (maxNonLetterRatio < 0.0 || maxNonLetterRatio > 1.0) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "max_non_letter_ratio",
+                            "must be between 0 and 1");
+                }
+            }
+            boolean skipMarkupOnly = ConfigurationUtils.readBooleanProperty(TYPE, processorTag, config,
+                    "skip_markup_only", false);
+            if (minWords == 0 && maxNonLetterRatio == 1.0 && !skipMarkupOnly) {
+                return TextGate.NONE;
+            }
+            return new TextGate(minWords, maxNonLetterRatio, skipMarkupOnly);
+        }
+
+        private static ScoringLimits readLimits(String processorTag, Map<String, Object> config) {
+            int maxChars = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "max_chars", 0);
+            if (maxChars < 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "max_chars",
+                        "must not be negative");
+            }
+            int maxTokens = ConfigurationUtils.readIntProperty(TYPE, processorTag, config, "max_tokens", 0);
+            if (maxTokens < 0) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "max_tokens",
+                        "must not be negative");
+            }
+            String truncateMode = ConfigurationUtils.readStringProperty(TYPE, processorTag, config, "truncate_mode",
+                    "prefix");
+            if (!"prefix".equals(truncateMode) && !"head_tail".equals(truncateMode)) {
+                throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "truncate_mode",
+                        "must be one of [prefix, head_tail] but was [" + truncateMode + "]");
+            }
+            String timeBudget = ConfigurationUtils.readOptionalStringProperty(TYPE, processorTag, config,
+                    "time_budget");
+            long timeBudgetNanos = 0;
+            if (timeBudget != null) {
+                try {
+                    timeBudgetNanos = TimeValue.parseTimeValue(timeBudget, null, "time_budget").nanos();
+                } catch (ElasticsearchParseException e) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "time_budget",
+                            e.getMessage());
+                }
+                if (timeBudgetNanos <= 0) {
+                    throw ConfigurationUtils.newConfigurationException(TYPE, processorTag, "time_budget",
+                            "must be positive");
+                }
+            }
+            if (maxChars == 0 && maxTokens == 0 && timeBudgetNanos == 0) {
+                return ScoringLimits.NONE;
+            }
+            return new ScoringLimits(maxChars, maxTokens, "head_tail".equals(truncateMode), timeBudgetNanos);
         }
     }
 }
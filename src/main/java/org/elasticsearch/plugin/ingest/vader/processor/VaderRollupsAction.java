@@ -0,0 +1,296 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the sentiment rollups of the {@code vader_analyzer} processors of every node, summed over the cluster
+ * and broken down by node, for {@code GET /_vader/rollups}.
+ *
+ * @author Animesh Pandey
+ */
+public class VaderRollupsAction extends Action<VaderRollupsAction.Request, VaderRollupsAction.Response,
+        VaderRollupsAction.RequestBuilder> {
+    public static final VaderRollupsAction INSTANCE = new VaderRollupsAction();
+    public static final String NAME = "cluster:monitor/vader/rollups";
+
+    private VaderRollupsAction() {
+        super(NAME);
+    }
+
+    @Override
+    public RequestBuilder newRequestBuilder(ElasticsearchClient client) {
+        return new RequestBuilder(client, this);
+    }
+
+    @Override
+    public Response newResponse() {
+        return new Response();
+    }
+
+    /**
+     * Rollups of some processor tags and of some values of their rollup field, all of them when none is given, on
+     * some nodes, all of them by default.
+     */
+    public static class Request extends BaseNodesRequest<Request> {
+        private String[] tags = Strings.EMPTY_ARRAY;
+        private String[] keys = Strings.EMPTY_ARRAY;
+
+        public Request() {
+        }
+
+        public Request(String... nodesIds) {
+            super(nodesIds);
+        }
+
+        public String[] tags() {
+            return tags;
+        }
+
+        public Request tags(String... tags) {
+            this.tags = tags;
+            return this;
+        }
+
+        public String[] keys() {
+            return keys;
+        }
+
+        public Request keys(String... keys) {
+            this.keys = keys;
+            return this;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            tags = in.readStringArray();
+            keys = in.readStringArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeStringArray(tags);
+            out.writeStringArray(keys);
+        }
+    }
+
+    public static class RequestBuilder extends NodesOperationRequestBuilder<Request, Response, RequestBuilder> {
+        RequestBuilder(ElasticsearchClient client, VaderRollupsAction action) {
+            super(client, action, new Request());
+        }
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+        private String[] tags;
+        private String[] keys;
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, Request request) {
+            super(nodeId);
+            this.tags = request.tags();
+            this.keys = request.keys();
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            tags = in.readStringArray();
+            keys = in.readStringArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeStringArray(tags);
+            out.writeStringArray(keys);
+        }
+    }
+
+    /**
+     * Copies of the rollups of one node, restricted to the requested keys.
+     */
+    public static class NodeResponse extends BaseNodeResponse {
+        private Map<String, SentimentRollup> rollups;
+
+        public NodeResponse() {
+        }
+
+        NodeResponse(DiscoveryNode node, Map<String, SentimentRollup> rollups) {
+            super(node);
+            this.rollups = rollups;
+        }
+
+        static NodeResponse readNodeResponse(StreamInput in) throws IOException {
+            NodeResponse response = new NodeResponse();
+            response.readFrom(in);
+            return response;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            rollups = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                rollups.put(in.readString(), new SentimentRollup(in));
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(rollups.size());
+            for (Map.Entry<String, SentimentRollup> entry : rollups.entrySet()) {
+                out.writeString(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Rollups of every node that answered, summed by processor tag, followed by those of every node. A node
+     * rolling a tag up with other settings than the first node, as its pipeline is being replaced, is left out of
+     * the sum of that tag.
+     */
+    public static class Response extends BaseNodesResponse<NodeResponse> implements ToXContent {
+        Response() {
+        }
+
+        Response(ClusterName clusterName, List<NodeResponse> nodes, List<FailedNodeException> failures) {
+            super(clusterName, nodes, failures);
+        }
+
+        @Override
+        protected List<NodeResponse> readNodesFrom(StreamInput in) throws IOException {
+            return in.readList(NodeResponse::readNodeResponse);
+        }
+
+        @Override
+        protected void writeNodesTo(StreamOutput out, List<NodeResponse> nodes) throws IOException {
+            out.writeStreamableList(nodes);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            Map<String, SentimentRollup> rollups = new TreeMap<>();
+            for (NodeResponse node : getNodes()) {
+                for (Map.Entry<String, SentimentRollup> entry : node.rollups.entrySet()) {
+                    SentimentRollup rollup = entry.getValue();
+                    SentimentRollup total = rollups.computeIfAbsent(entry.getKey(), tag -> new SentimentRollup(
+                            rollup.getField(), rollup.getIntervalMillis(), rollup.getRetainedBuckets(),
+                            rollup.getMaxKeys()));
+                    if (total.hasSettings(rollup.getField(), rollup.getIntervalMillis(), rollup.getRetainedBuckets(),
+                            rollup.getMaxKeys())) {
+                        total.add(rollup, Collections.<String>emptySet());
+                    }
+                }
+            }
+            toXContent(builder, rollups);
+            builder.startObject("nodes");
+            for (NodeResponse node : getNodes()) {
+                builder.startObject(node.getNode().getId());
+                builder.field("name", node.getNode().getName());
+                toXContent(builder, new TreeMap<>(node.rollups));
+                builder.endObject();
+            }
+            builder.endObject();
+            return builder;
+        }
+
+        private static void toXContent(XContentBuilder builder, Map<String, SentimentRollup> rollups)
+                throws IOException {
+            builder.startObject("rollups");
+            for (Map.Entry<String, SentimentRollup> entry : rollups.entrySet()) {
+                builder.field(entry.getKey());
+                entry.getValue().toXContent(builder, ToXContent.EMPTY_PARAMS);
+            }
+            builder.endObject();
+        }
+    }
+
+    /**
+     * Copies the rollups of the {@link VaderSentimentService} of every node.
+     */
+    public static class TransportVaderRollupsAction
+            extends TransportNodesAction<Request, Response, NodeRequest, NodeResponse> {
+        private final VaderSentimentService vaderSentimentService;
+
+        @Inject
+        public TransportVaderRollupsAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                           TransportService transportService, ActionFilters actionFilters,
+                                           IndexNameExpressionResolver indexNameExpressionResolver,
+                                           VaderSentimentService vaderSentimentService) {
+            super(settings, NAME, threadPool, clusterService, transportService, actionFilters,
+                    indexNameExpressionResolver, Request::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT,
+                    NodeResponse.class);
+            this.vaderSentimentService = vaderSentimentService;
+        }
+
+        @Override
+        protected Response newResponse(Request request, List<NodeResponse> responses,
+                                       List<FailedNodeException> failures) {
+            return new Response(clusterService.getClusterName(), responses, failures);
+        }
+
+        @Override
+        protected NodeRequest newNodeRequest(String nodeId, Request request) {
+            return new NodeRequest(nodeId, request);
+        }
+
+        @Override
+        protected NodeResponse newNodeResponse() {
+            return new NodeResponse();
+        }
+
+        @Override
+        protected NodeResponse nodeOperation(NodeRequest request) {
+            List<String> tags = Arrays.asList(request.tags);
+            List<String> keys = Arrays.asList(request.keys);
+            Map<String, SentimentRollup> rollups = new HashMap<>();
+            for (Map.Entry<String, SentimentRollup> entry : vaderSentimentService.getRollups().entrySet()) {
+                if (tags.isEmpty() || tags.contains(entry.getKey())) {
+                    rollups.put(entry.getKey(), entry.getValue().copy(keys));
+                }
+            }
+            return new NodeResponse(clusterService.localNode(), rollups);
+        }
+
+        @Override
+        protected boolean accumulateExceptions() {
+            return false;
+        }
+    }
+}
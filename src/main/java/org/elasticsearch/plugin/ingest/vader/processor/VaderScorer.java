@@ -0,0 +1,604 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plugin-owned implementation of the VADER scoring rules of {@link com.vader.sentiment.analyzer.SentimentAnalyzer}.
+ * <p>
+ * Tokens are kept as offsets into the input {@link CharSequence} and every intermediate value lives in
+ * primitive scratch arrays that are reused from one document to the next, so scoring a document does
+ * not allocate once the arrays have grown to fit it. Text tokenized upstream, a {@link TokenText}, is scored
+ * token by token without being split again. Emoji are looked up in the {@link EmojiTable} while the text
+ * is split into words, and scored as words of the lexicon. An instance is not thread safe: the
+ * {@link VaderSentimentService} keeps one per thread.
+ *
+ * @author Animesh Pandey
+ */
+final class VaderScorer {
+
+    /**
+     * Increment added to the valence of a word written in capitals when the rest of the text is not.
+     */
+    private static final float C_INCR = 0.733F;
+
+    /**
+     * Factor applied to the valence of a negated word.
+     */
+    private static final float N_SCALAR = -0.74F;
+
+    /**
+     * Punctuation that is stripped from the start or the end of a word.
+     */
+    private static final String[] PUNCTUATION = {".", "!", "?", ",", ";", ":", "-", "'", "\"",
+            "!!", "!!!", "??", "???", "?!?", "!?!", "?!?!", "!?!?!"};
+
+    private CharSequence[] tokenText = new CharSequence[64];
+    private int[] tokenStart = new int[64];
+    private int[] tokenEnd = new int[64];
+    private int[] firstOccurrence = new int[64];
+    private float[] sentiments = new float[64];
+
+    /**
+     * Valence of the tokens that are emoji, NaN for words.
+     */
+    private float[] emojiValences = new float[64];
+    private int tokenCount;
+
+    /**
+     * Open addressing table from token to the index of its first occurrence.
+     */
+    private int[] occurrenceTable = new int[128];
+
+    /**
+     * Reused buffer for looking up multi-word idioms and boosters.
+     */
+    private final StringBuilder phrase = new StringBuilder();
+
+    private boolean capDifferential;
+
+    /**
+     * Sums of the document being scored by {@link #score(VaderLexicon, CharSequence, float[])}.
+     */
+    private final PolarityAccumulator accumulator = new PolarityAccumulator();
+
+    /**
+     * Scores the text and writes the result to {@code polarity}, indexed by
+     * {@link VaderSentimentService#COMPOUND}, {@link VaderSentimentService#POSITIVE},
+     * {@link VaderSentimentService#NEGATIVE} and {@link VaderSentimentService#NEUTRAL}.
+     *
+     * @param lexicon  lexicon to score with
+     * @param text     text to score
+     * @param polarity array of at least four elements receiving the scores
+     */
+    void score(VaderLexicon lexicon, CharSequence text, float[] polarity) {
+        accumulator.reset();
+        accumulate(lexicon, text, 0, text.length(), accumulator);
+        accumulator.finish(polarity);
+    }
+
+    /**
+     * Scores every text of the batch with the same scratch buffers and accumulator, and writes the polarity of
+     * the text at index {@code i} to {@code polarities[4 * i]} to {@code polarities[4 * i + 3]}.
+     *
+     * @param lexicon    lexicon to score with
+     * @param texts      texts to score
+     * @param polarities array of at least {@code 4 * texts.size()} elements receiving the scores
+     */
+    void scoreAll(VaderLexicon lexicon, List<? extends CharSequence> texts, float[] polarities) {
+        for (int i = 0; i < texts.size(); i++) {
+            CharSequence text = texts.get(i);
+            accumulator.reset();
+            accumulate(lexicon, text, 0, text.length(), accumulator);
+            accumulator.finish(polarities, i * 4);
+        }
+    }
+
+    /**
+     * Scores the part of the text between {@code start} and {@code end} and adds its sums to the accumulator.
+     *
+     * @param lexicon     lexicon to score with
+     * @param text        text holding the part to score
+     * @param start       offset of the first character to score
+     * @param end         offset after the last character to score
+     * @param accumulator receives the sums of the scored part
+     */
+    void accumulate(VaderLexicon lexicon, CharSequence text, int start, int end, PolarityAccumulator accumulator) {
+        tokenCount = 0;
+        countPunctuation(text, start, end, accumulator);
+        tokenize(text, start, end);
+        computeFirstOccurrences();
+        capDifferential = isCapDifferential();
+        for (int t = 0; t < tokenCount; t++) {
+            sentiments[t] = valence(lexicon, firstOccurrence[t]);
+        }
+        butCheck();
+        for (int t = 0; t < tokenCount; t++) {
+            accumulator.add(sentiments[t]);
+        }
+        // do not keep the document alive until the next one is scored
+        Arrays.fill(tokenText, 0, tokenCount, null);
+    }
+
+    private static void countPunctuation(CharSequence text, int start, int end, PolarityAccumulator accumulator) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '!') {
+                accumulator.exclamationCount++;
+            } else if (c == '?') {
+                accumulator.questionCount++;
+            }
+        }
+    }
+
+    /**
+     * Splits the text on white space, drops single character tokens and strips punctuation
+     * around words, the same way the library builds its list of words and emoticons.
+     * <p>
+     * A {@link TokenText} is not split again: each of its tokens is a word.
+     */
+    private void tokenize(CharSequence text, int from, int to) {
+        if (text instanceof TokenText) {
+            tokenize((TokenText) text, from, to);
+            return;
+        }
+        int i = from;
+        while (i < to) {
+            while (i < to && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < to && !Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            addWord(text, start, i);
+        }
+    }
+
+    /**
+     * Adds the tokens of the text that overlap the part between {@code from} and {@code to}, reading them from
+     * their source.
+     */
+    private void tokenize(TokenText text, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        for (int t = text.tokenAt(from); t < text.tokenCount() && text.offset(t) < to; t++) {
+            int offset = text.offset(t);
+            int start = text.start(t) + Math.max(from - offset, 0);
+            int end = Math.min(text.end(t), text.start(t) + to - offset);
+            addWord(text.source(t), start, end);
+        }
+    }
+
+    /**
+     * Adds a word, which may hold white space only if it was tokenized upstream.
+     * <p>
+     * Emoji of the {@link EmojiTable} are tokens of their own, even when they are a single character or are
+     * written next to a word, and the modifiers of an emoji split words as white space does.
+     */
+    private void addWord(CharSequence text, int start, int end) {
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (!EmojiTable.mayStartEmoji(c)) {
+                i++;
+                continue;
+            }
+            int codePoint = Character.codePointAt(text, i);
+            int next = Math.min(i + Character.charCount(codePoint), end);
+            float emoji = EmojiTable.DEFAULT.valence(codePoint);
+            if (Float.isNaN(emoji) && !EmojiTable.isModifier(codePoint)) {
+                i = next;
+                continue;
+            }
+            if (i - start > 1) {
+                addToken(text, start, i);
+            }
+            if (!Float.isNaN(emoji)) {
+                addEmoji(text, i, next, emoji);
+            }
+            i = next;
+            start = i;
+        }
+        if (end - start > 1) {
+            addToken(text, start, end);
+        }
+    }
+
+    private void addEmoji(CharSequence text, int start, int end, float valence) {
+        ensureCapacity(tokenCount + 1);
+        tokenText[tokenCount] = text;
+        tokenStart[tokenCount] = start;
+        tokenEnd[tokenCount] = end;
+        emojiValences[tokenCount] = valence;
+        tokenCount++;
+    }
+
+    private void addToken(CharSequence text, int start, int end) {
+        for (String punctuation : PUNCTUATION) {
+            int p = punctuation.length();
+            if (end - start <= p) {
+                continue;
+            }
+            if (regionEquals(text, end - p, punctuation) && isWord(text, start, end - p)) {
+                end -= p;
+                break;
+            }
+            if (regionEquals(text, start, punctuation) && isWord(text, start + p, end)) {
+                start += p;
+                break;
+            }
+        }
+        ensureCapacity(tokenCount + 1);
+        tokenText[tokenCount] = text;
+        tokenStart[tokenCount] = start;
+        tokenEnd[tokenCount] = end;
+        emojiValences[tokenCount] = Float.NaN;
+        tokenCount++;
+    }
+
+    private static boolean regionEquals(CharSequence text, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(offset + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the text would be emitted as a single word, of at least two characters, by a
+     * tokenizer that drops punctuation. Letters and digits may be joined by an apostrophe or a
+     * period, letters by a colon and digits by a comma or a semicolon.
+     */
+    private static boolean isWord(CharSequence text, int start, int end) {
+        if (end - start < 2 || !isWordChar(text.charAt(start)) || !isWordChar(text.charAt(end - 1))) {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                continue;
+            }
+            char before = text.charAt(i - 1);
+            char after = text.charAt(i + 1);
+            boolean joined;
+            if (c == '\'' || c == '.') {
+                joined = isWordChar(before) && isWordChar(after);
+            } else if (c == ':') {
+                joined = Character.isLetter(before) && Character.isLetter(after);
+            } else if (c == ',' || c == ';') {
+                joined = Character.isDigit(before) && Character.isDigit(after);
+            } else {
+                joined = false;
+            }
+            if (!joined) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (Character.isLetterOrDigit(c) || c == '_') && !Character.isIdeographic(c);
+    }
+
+    /**
+     * The library looks up the position of a token with {@code indexOf}, so a repeated token
+     * takes the context of its first occurrence. This is kept to produce the same scores.
+     */
+    private void computeFirstOccurrences() {
+        int tableSize = Integer.highestOneBit(Math.max(tokenCount, 1) * 2 - 1) << 1;
+        if (occurrenceTable.length < tableSize) {
+            occurrenceTable = new int[tableSize];
+        } else {
+            Arrays.fill(occurrenceTable, 0, tableSize, 0);
+        }
+        int mask = tableSize - 1;
+        for (int t = 0; t < tokenCount; t++) {
+            int slot = hash(t) & mask;
+            while (true) {
+                int entry = occurrenceTable[slot];
+                if (entry == 0) {
+                    occurrenceTable[slot] = t + 1;
+                    firstOccurrence[t] = t;
+                    break;
+                }
+                if (tokenEquals(entry - 1, t)) {
+                    firstOccurrence[t] = entry - 1;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private int hash(int t) {
+        CharSequence text = tokenText[t];
+        int h = 0;
+        for (int i = tokenStart[t], end = tokenEnd[t]; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean tokenEquals(int a, int b) {
+        int length = tokenEnd[a] - tokenStart[a];
+        if (length != tokenEnd[b] - tokenStart[b]) {
+            return false;
+        }
+        CharSequence textA = tokenText[a];
+        CharSequence textB = tokenText[b];
+        for (int i = 0; i < length; i++) {
+            if (textA.charAt(tokenStart[a] + i) != textB.charAt(tokenStart[b] + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCapDifferential() {
+        int upper = 0;
+        for (int t = 0; t < tokenCount; t++) {
+            if (isUpper(t)) {
+                upper++;
+            }
+        }
+        int differential = tokenCount - upper;
+        return differential > 0 && differential < tokenCount;
+    }
+
+    /**
+     * Whether the token has at least one cased character and no lower-case character.
+     */
+    private boolean isUpper(int t) {
+        CharSequence text = tokenText[t];
+        boolean cased = false;
+        for (int i = tokenStart[t], end = tokenEnd[t]; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isLowerCase(c) || Character.isTitleCase(c)) {
+                return false;
+            }
+            if (Character.isUpperCase(c)) {
+                cased = true;
+            }
+        }
+        return cased;
+    }
+
+    /**
+     * Valence of the token at index {@code i}, adjusted for capitals, boosters, negations, idioms and "least".
+     */
+    private float valence(VaderLexicon lexicon, int i) {
+        float valence = emojiValences[i];
+        if (Float.isNaN(valence)) {
+            if ((i < tokenCount - 1 && equalsIgnoreCase(i, "kind") && equalsIgnoreCase(i + 1, "of"))
+                    || VaderLexicon.BOOSTERS.find(tokenText[i], tokenStart[i], tokenEnd[i], true) >= 0) {
+                return 0.0F;
+            }
+            int index = lexicon.find(tokenText[i], tokenStart[i], tokenEnd[i]);
+            if (index < 0) {
+                return 0.0F;
+            }
+            valence = lexicon.valence(index);
+        }
+        if (capDifferential && isUpper(i)) {
+            valence += valence > 0 ? C_INCR : -C_INCR;
+        }
+        for (int startI = 0; startI < 3; startI++) {
+            int previous = i - (startI + 1);
+            if (i > startI && !inLexicon(lexicon, previous)) {
+                float scalar = scalarIncDec(previous, valence);
+                if (startI == 1 && scalar != 0) {
+                    scalar = scalar * 0.95F;
+                } else if (startI == 2 && scalar != 0) {
+                    scalar = scalar * 0.9F;
+                }
+                valence = valence + scalar;
+                valence = neverCheck(valence, startI, i);
+                if (startI == 2) {
+                    valence = idiomsCheck(valence, i);
+                }
+            }
+        }
+        return leastCheck(lexicon, valence, i);
+    }
+
+    private boolean inLexicon(VaderLexicon lexicon, int t) {
+        return !Float.isNaN(emojiValences[t]) || lexicon.find(tokenText[t], tokenStart[t], tokenEnd[t]) >= 0;
+    }
+
+    private float scalarIncDec(int t, float valence) {
+        int index = VaderLexicon.BOOSTERS.find(tokenText[t], tokenStart[t], tokenEnd[t], true);
+        if (index < 0) {
+            return 0.0F;
+        }
+        float scalar = VaderLexicon.BOOSTERS.value(index);
+        if (valence < 0) {
+            scalar *= -1;
+        }
+        if (capDifferential && isUpper(t)) {
+            scalar += valence > 0 ? C_INCR : -C_INCR;
+        }
+        return scalar;
+    }
+
+    private float neverCheck(float valence, int startI, int i) {
+        if (startI == 0) {
+            if (isNegated(i - 1)) {
+                valence = valence * N_SCALAR;
+            }
+        } else if (startI == 1) {
+            if (equals(i - 2, "never") && (equals(i - 1, "so") || equals(i - 1, "this"))) {
+                valence = valence * 1.5F;
+            } else if (isNegated(i - 2)) {
+                valence = valence * N_SCALAR;
+            }
+        } else {
+            if ((equals(i - 3, "never") && (equals(i - 2, "so") || equals(i - 2, "this")))
+                    || (equals(i - 1, "so") || equals(i - 1, "this"))) {
+                valence = valence * 1.25F;
+            } else if (isNegated(i - 3)) {
+                valence = valence * N_SCALAR;
+            }
+        }
+        return valence;
+    }
+
+    private boolean isNegated(int t) {
+        if (VaderLexicon.NEGATIONS.find(tokenText[t], tokenStart[t], tokenEnd[t], false) >= 0) {
+            return true;
+        }
+        CharSequence text = tokenText[t];
+        for (int i = tokenStart[t], end = tokenEnd[t] - 2; i < end; i++) {
+            if (text.charAt(i) == 'n' && text.charAt(i + 1) == '\'' && text.charAt(i + 2) == 't') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float idiomsCheck(float valence, int i) {
+        float idiom = idiom(i - 1, 2);
+        if (Float.isNaN(idiom)) {
+            idiom = idiom(i - 2, 3);
+        }
+        if (Float.isNaN(idiom)) {
+            idiom = idiom(i - 2, 2);
+        }
+        if (Float.isNaN(idiom)) {
+            idiom = idiom(i - 3, 3);
+        }
+        if (Float.isNaN(idiom)) {
+            idiom = idiom(i - 3, 2);
+        }
+        if (!Float.isNaN(idiom)) {
+            valence = idiom;
+        }
+        if (tokenCount - 1 > i) {
+            idiom = idiom(i, 2);
+            if (!Float.isNaN(idiom)) {
+                valence = idiom;
+            }
+        }
+        if (tokenCount - 1 > i + 1) {
+            idiom = idiom(i, 3);
+            if (!Float.isNaN(idiom)) {
+                valence = idiom;
+            }
+        }
+        if (isBoosterPhrase(i - 3, 2) || isBoosterPhrase(i - 2, 2)) {
+            valence = valence + VaderLexicon.B_DECR;
+        }
+        return valence;
+    }
+
+    /**
+     * @return valence of the idiom made of {@code count} tokens starting at {@code from}, or NaN
+     */
+    private float idiom(int from, int count) {
+        buildPhrase(from, count);
+        int index = VaderLexicon.SPECIAL_CASE_IDIOMS.find(phrase, 0, phrase.length(), false);
+        return index < 0 ? Float.NaN : VaderLexicon.SPECIAL_CASE_IDIOMS.value(index);
+    }
+
+    private boolean isBoosterPhrase(int from, int count) {
+        buildPhrase(from, count);
+        return VaderLexicon.BOOSTERS.find(phrase, 0, phrase.length(), false) >= 0;
+    }
+
+    private void buildPhrase(int from, int count) {
+        phrase.setLength(0);
+        for (int t = from; t < from + count; t++) {
+            if (t > from) {
+                phrase.append(' ');
+            }
+            phrase.append(tokenText[t], tokenStart[t], tokenEnd[t]);
+        }
+    }
+
+    private float leastCheck(VaderLexicon lexicon, float valence, int i) {
+        if (i > 1 && !inLexicon(lexicon, i - 1) && equalsIgnoreCase(i - 1, "least")) {
+            if (!equalsIgnoreCase(i - 2, "at") && !equalsIgnoreCase(i - 2, "very")) {
+                valence = valence * N_SCALAR;
+            }
+        } else if (i > 0 && !inLexicon(lexicon, i - 1) && equalsIgnoreCase(i - 1, "least")) {
+            valence = valence * N_SCALAR;
+        }
+        return valence;
+    }
+
+    /**
+     * Words before the first "but" count half, words after it count one and a half times.
+     * Like the library, a sentiment is located by the first position holding an equal value.
+     */
+    private void butCheck() {
+        int but = indexOf("but");
+        if (but < 0) {
+            but = indexOf("BUT");
+        }
+        if (but < 0) {
+            return;
+        }
+        for (int t = 0; t < tokenCount; t++) {
+            float sentiment = sentiments[t];
+            if (sentiment == 0) {
+                // multiplying a zero never changes it, wherever it is found
+                continue;
+            }
+            int si = t;
+            int bits = Float.floatToIntBits(sentiment);
+            for (int s = 0; s < t; s++) {
+                if (Float.floatToIntBits(sentiments[s]) == bits) {
+                    si = s;
+                    break;
+                }
+            }
+            if (si < but) {
+                sentiments[si] = sentiment * 0.5F;
+            } else if (si > but) {
+                sentiments[si] = sentiment * 1.5F;
+            }
+        }
+    }
+
+    private int indexOf(String word) {
+        for (int t = 0; t < tokenCount; t++) {
+            if (equals(t, word)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private boolean equals(int t, String word) {
+        return tokenEnd[t] - tokenStart[t] == word.length() && regionEquals(tokenText[t], tokenStart[t], word);
+    }
+
+    private boolean equalsIgnoreCase(int t, String word) {
+        if (tokenEnd[t] - tokenStart[t] != word.length()) {
+            return false;
+        }
+        CharSequence text = tokenText[t];
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(text.charAt(tokenStart[t] + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= tokenStart.length) {
+            return;
+        }
+        int newSize = Math.max(size, tokenStart.length << 1);
+        tokenText = Arrays.copyOf(tokenText, newSize);
+        tokenStart = Arrays.copyOf(tokenStart, newSize);
+        tokenEnd = Arrays.copyOf(tokenEnd, newSize);
+        firstOccurrence = Arrays.copyOf(firstOccurrence, newSize);
+        sentiments = Arrays.copyOf(sentiments, newSize);
+        emojiValences = Arrays.copyOf(emojiValences, newSize);
+    }
+}
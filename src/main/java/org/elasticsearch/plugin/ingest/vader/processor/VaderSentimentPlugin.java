@@ -1,18 +1,111 @@
 package org.elasticsearch.plugin.ingest.vader.processor;
 
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.search.SearchRequestParsers;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.analysis.TokenFilterFactory;
+import org.elasticsearch.indices.analysis.AnalysisModule.AnalysisProvider;
+import org.elasticsearch.ingest.IngestMetadata;
+import org.elasticsearch.ingest.PipelineConfiguration;
 import org.elasticsearch.ingest.Processor;
+import org.elasticsearch.plugins.ActionPlugin;
+import org.elasticsearch.plugins.AnalysisPlugin;
 import org.elasticsearch.plugins.IngestPlugin;
 import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.plugins.ScriptPlugin;
+import org.elasticsearch.rest.RestHandler;
+import org.elasticsearch.script.NativeScriptFactory;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.FixedExecutorBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.watcher.FileChangesListener;
+import org.elasticsearch.watcher.FileWatcher;
+import org.elasticsearch.watcher.ResourceWatcherService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Defines a custom IngestPlugin.
  *
  * @author Animesh Pandey
  */
-public class VaderSentimentPlugin extends Plugin implements IngestPlugin {
+public class VaderSentimentPlugin extends Plugin implements IngestPlugin, ActionPlugin, ScriptPlugin, AnalysisPlugin {
+
+    /**
+     * Number of threads scoring the sentences of long documents in parallel.
+     */
+    static final Setting<Integer> SENTENCE_PARALLELISM_SETTING = Setting.intSetting("ingest.vader.sentence_parallelism",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1, Setting.Property.NodeScope);
+
+    /**
+     * Name of the thread pool scoring the documents of the processors with a {@code dedicated_thread_pool}, sized by
+     * the {@code thread_pool.vader.size} and {@code thread_pool.vader.queue_size} settings.
+     */
+    static final String THREAD_POOL_NAME = "vader";
+
+    /**
+     * Default number of documents waiting for a thread of the {@value #THREAD_POOL_NAME} thread pool.
+     */
+    static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    /**
+     * Directory, in the configuration directory of the node, holding the lexicon overlays, one {@code <name>.txt}
+     * file per lexicon.
+     */
+    static final String LEXICON_DIRECTORY = "ingest-vader";
+
+    /**
+     * Name of the directory of this plugin in the plugins directory of the node.
+     */
+    static final String PLUGIN_NAME = "vader-sentiment-ingest-plugin";
+
+    private final Settings settings;
+
+    /**
+     * Service shared by the processors and the REST handlers of this plugin, created on first use as
+     * the node asks for processors and components in an order of its own.
+     */
+    private VaderSentimentService vaderSentimentService;
+
+    public VaderSentimentPlugin(Settings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public List<Setting<?>> getSettings() {
+        return Collections.singletonList(SENTENCE_PARALLELISM_SETTING);
+    }
+
+    /**
+     * Registers the {@value #THREAD_POOL_NAME} thread pool, half the number of processors by default, so that
+     * sentiment analysis has a budget of its own and shows in the thread pool statistics of the node.
+     */
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+        int size = Math.max(1, EsExecutors.boundedNumberOfProcessors(settings) / 2);
+        return Collections.singletonList(new FixedExecutorBuilder(settings, THREAD_POOL_NAME, size,
+                DEFAULT_QUEUE_SIZE));
+    }
 
     /**
      * Defines a map of all types of processors implemented in this plugin.
@@ -22,11 +115,176 @@ public class VaderSentimentPlugin extends Plugin implements IngestPlugin {
      */
     @Override
     public Map<String, Processor.Factory> getProcessors(Processor.Parameters parameters) {
-        VaderSentimentService vaderSentimentService = new VaderSentimentService();
-        vaderSentimentService.start();
-        Processor.Factory sentimentFactory = new VaderProcessor.Factory(vaderSentimentService);
+        Processor.Factory sentimentFactory = new VaderProcessor.Factory(getVaderSentimentService());
         return new HashMap<String, Processor.Factory>() {{
             put(VaderProcessor.TYPE, sentimentFactory);
         }};
     }
+
+    /**
+     * Loads the lexicon overlays and reloads them whenever a file of their directory changes, hands the
+     * {@value #THREAD_POOL_NAME} thread pool to the service, drops the rollups of the pipelines that are deleted,
+     * and binds the service, so that the REST handlers of this plugin can be injected with it.
+     */
+    @Override
+    public Collection<Object> createComponents(Client client, ClusterService clusterService, ThreadPool threadPool,
+                                               ResourceWatcherService resourceWatcherService,
+                                               ScriptService scriptService,
+                                               SearchRequestParsers searchRequestParsers) {
+        VaderSentimentService service = getVaderSentimentService();
+        ThreadPool.Info poolInfo = threadPool.info(THREAD_POOL_NAME);
+        SizeValue queueSize = poolInfo.getQueueSize();
+        // an unbounded queue, a queue_size of -1, has no size and admits every document
+        int capacity = queueSize == null ? Integer.MAX_VALUE
+                : (int) Math.min(Integer.MAX_VALUE, poolInfo.getMax() + queueSize.singles());
+        service.setScoringPool(new ScoringPool(threadPool.executor(THREAD_POOL_NAME), capacity));
+        Path overlays = new Environment(settings).configFile().resolve(LEXICON_DIRECTORY);
+        service.loadOverlays(overlays);
+        FileWatcher watcher = new FileWatcher(overlays);
+        watcher.addListener(new OverlayListener(service, overlays));
+        try {
+            resourceWatcherService.add(watcher, ResourceWatcherService.Frequency.HIGH);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to watch the VADER lexicons of [" + overlays + "]", e);
+        }
+        clusterService.addListener(new PipelineListener(service));
+        return Collections.singletonList(service);
+    }
+
+    /**
+     * Registers the actions collecting the statistics of every node, so that the REST handlers of this plugin
+     * report the whole cluster.
+     */
+    @Override
+    public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
+        return Arrays.asList(
+                new ActionHandler<>(VaderStatsAction.INSTANCE, VaderStatsAction.TransportVaderStatsAction.class),
+                new ActionHandler<>(VaderRollupsAction.INSTANCE, VaderRollupsAction.TransportVaderRollupsAction.class));
+    }
+
+    @Override
+    public List<Class<? extends RestHandler>> getRestHandlers() {
+        return Arrays.asList(RestVaderStatsAction.class, RestVaderRollupsAction.class);
+    }
+
+    /**
+     * Registers the {@code vader_sentiment} native script, scoring the source of the documents at search time.
+     */
+    @Override
+    public List<NativeScriptFactory> getNativeScripts() {
+        return Collections.singletonList(new VaderSentimentScript.Factory(getVaderSentimentService()));
+    }
+
+    /**
+     * Registers the {@code vader_valence} token filter, marking the words of the lexicon in the index.
+     */
+    @Override
+    public Map<String, AnalysisProvider<TokenFilterFactory>> getTokenFilters() {
+        AnalysisProvider<TokenFilterFactory> provider = (indexSettings, environment, name, settings) ->
+                new VaderValenceTokenFilterFactory(indexSettings, name, settings, getVaderSentimentService());
+        return Collections.singletonMap(VaderValenceTokenFilterFactory.NAME, provider);
+    }
+
+    /**
+     * Closes the service, shutting its sentence pool down.
+     */
+    @Override
+    public synchronized void close() {
+        if (vaderSentimentService != null) {
+            vaderSentimentService.close();
+        }
+    }
+
+    private synchronized VaderSentimentService getVaderSentimentService() {
+        if (vaderSentimentService == null) {
+            Path compiledLexicon = new Environment(settings).pluginsFile().resolve(PLUGIN_NAME)
+                    .resolve(BinaryLexicon.FILE_NAME);
+            vaderSentimentService = new VaderSentimentService(SENTENCE_PARALLELISM_SETTING.get(settings),
+                    compiledLexicon).start();
+        }
+        return vaderSentimentService;
+    }
+
+    /**
+     * Drops the rollups of the processor tags that no pipeline of the cluster holds anymore, whenever the pipelines
+     * change.
+     */
+    private static final class PipelineListener implements ClusterStateListener {
+        private final VaderSentimentService service;
+
+        PipelineListener(VaderSentimentService service) {
+            this.service = service;
+        }
+
+        @Override
+        public void clusterChanged(ClusterChangedEvent event) {
+            IngestMetadata pipelines = event.state().metaData().custom(IngestMetadata.TYPE);
+            if (pipelines == event.previousState().metaData().custom(IngestMetadata.TYPE)) {
+                return;
+            }
+            Set<String> tags = new HashSet<>();
+            if (pipelines != null) {
+                for (PipelineConfiguration pipeline : pipelines.getPipelines().values()) {
+                    collectRollupTags(pipeline.getConfigAsMap(), tags);
+                }
+            }
+            service.retainRollups(tags);
+        }
+
+        /**
+         * Adds the tags of the {@value VaderProcessor#TYPE} processors keeping a rollup found anywhere in the
+         * configuration, including {@code on_failure} and wrapping processors.
+         */
+        private static void collectRollupTags(Object config, Set<String> tags) {
+            if (config instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) config).entrySet()) {
+                    if (VaderProcessor.TYPE.equals(entry.getKey()) && entry.getValue() instanceof Map) {
+                        Map<?, ?> processor = (Map<?, ?>) entry.getValue();
+                        if (processor.get("rollup_field") != null && processor.get("tag") != null) {
+                            tags.add(processor.get("tag").toString());
+                        }
+                    }
+                    collectRollupTags(entry.getValue(), tags);
+                }
+            } else if (config instanceof List) {
+                for (Object element : (List<?>) config) {
+                    collectRollupTags(element, tags);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads every overlay when one of them is created, changed or deleted.
+     */
+    private static final class OverlayListener extends FileChangesListener {
+        private final VaderSentimentService service;
+        private final Path directory;
+
+        OverlayListener(VaderSentimentService service, Path directory) {
+            this.service = service;
+            this.directory = directory;
+        }
+
+        @Override
+        public void onFileCreated(Path file) {
+            reload(file);
+        }
+
+        @Override
+        public void onFileChanged(Path file) {
+            reload(file);
+        }
+
+        @Override
+        public void onFileDeleted(Path file) {
+            reload(file);
+        }
+
+        private void reload(Path file) {
+            if (file.getFileName().toString().endsWith(VaderSentimentService.OVERLAY_SUFFIX)) {
+                service.loadOverlays(directory);
+            }
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import com.vader.sentiment.util.ScoreType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.script.AbstractDoubleSearchScript;
+import org.elasticsearch.script.ExecutableScript;
+import org.elasticsearch.script.NativeScriptFactory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Native script scoring a field of the {@code _source} of the documents at search time, with the
+ * {@link VaderSentimentService} of the ingest processors, so that indices that were not ingested through a
+ * {@code vader_analyzer} pipeline can be sorted, boosted or annotated by sentiment without reindexing them:
+ * <pre>
+ * "script": {"lang": "native", "inline": "vader_sentiment", "params": {"field": "content"}}
+ * </pre>
+ * An array of texts is scored as one text, its elements being separated by line breaks, and a missing field
+ * scores 0.
+ *
+ * @author Animesh Pandey
+ */
+final class VaderSentimentScript extends AbstractDoubleSearchScript {
+    /**
+     * Name under which the script is registered.
+     */
+    static final String NAME = "vader_sentiment";
+
+    /**
+     * Default number of polarities cached by the script, which is run over the same documents again and again.
+     */
+    static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private final VaderSentimentService vaderSentimentService;
+    private final VaderLexicon lexicon;
+    private final String field;
+    private final int scoreIndex;
+    private final SentimentCache cache;
+    private final float[] polarity = new float[4];
+    private final StringBuilder joined = new StringBuilder();
+
+    /**
+     * @param vaderSentimentService service scoring the text
+     * @param lexicon               lexicon scoring the text
+     * @param field                 path of the field of the source holding the text
+     * @param scoreIndex            index of the returned score in a polarity array
+     * @param cache                 cache of already scored texts, null to score every text
+     */
+    VaderSentimentScript(VaderSentimentService vaderSentimentService, VaderLexicon lexicon, String field,
+                         int scoreIndex, SentimentCache cache) {
+        this.vaderSentimentService = vaderSentimentService;
+        this.lexicon = lexicon;
+        this.field = field;
+        this.scoreIndex = scoreIndex;
+        this.cache = cache;
+    }
+
+    @Override
+    public double runAsDouble() {
+        return score(source().extractValue(field));
+    }
+
+    /**
+     * @param value value of the field in the source of the current document
+     * @return the selected score of the text of the value
+     */
+    double score(Object value) {
+        CharSequence text = text(value);
+        if (text == null || text.length() <= 1) {
+            return 0.0;
+        }
+        if (cache == null) {
+            vaderSentimentService.score(lexicon, text, polarity);
+        } else {
+            cache.score(vaderSentimentService, lexicon, text, polarity);
+        }
+        return polarity[scoreIndex];
+    }
+
+    /**
+     * @return the text of the value of the field, the strings of an array joined by line breaks, or null
+     */
+    private CharSequence text(Object value) {
+        if (value instanceof String) {
+            return ((String) value).trim();
+        }
+        if (value instanceof Iterable) {
+            joined.setLength(0);
+            for (Object element : (Iterable<?>) value) {
+                if (element instanceof String) {
+                    if (joined.length() > 0) {
+                        joined.append('\n');
+                    }
+                    joined.append((String) element);
+                }
+            }
+            return joined;
+        }
+        return null;
+    }
+
+    /**
+     * Creates the scripts from their parameters:
+     * <ul>
+     * <li>{@code field}, required, path of the field of the source holding the text</li>
+     * <li>{@code score}, the returned score, one of {@code compound}, {@code positive}, {@code negative} and
+     * {@code neutral}, {@code compound} by default</li>
+     * <li>{@code lexicon}, name of a lexicon overlay, the default lexicon otherwise</li>
+     * <li>{@code cache_size}, maximum number of polarities kept in the node-level cache, shared with the
+     * processors configured with the same size, {@value #DEFAULT_CACHE_SIZE} by default, 0 disables it</li>
+     * </ul>
+     */
+    static final class Factory implements NativeScriptFactory {
+        private final VaderSentimentService vaderSentimentService;
+
+        Factory(VaderSentimentService vaderSentimentService) {
+            this.vaderSentimentService = vaderSentimentService;
+        }
+
+        @Override
+        public ExecutableScript newScript(Map<String, Object> params) {
+            Map<String, Object> scriptParams = params == null ? Collections.<String, Object>emptyMap() : params;
+            String field = XContentMapValues.nodeStringValue(scriptParams.get("field"), null);
+            if (field == null) {
+                throw new IllegalArgumentException("script [" + NAME + "] requires the [field] parameter");
+            }
+            String score = XContentMapValues.nodeStringValue(scriptParams.get("score"), ScoreType.COMPOUND);
+            String lexiconName = XContentMapValues.nodeStringValue(scriptParams.get("lexicon"), null);
+            int cacheSize = XContentMapValues.nodeIntegerValue(scriptParams.get("cache_size"), DEFAULT_CACHE_SIZE);
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("script [" + NAME + "] requires a [cache_size] that is not "
+                        + "negative but was [" + cacheSize + "]");
+            }
+            SentimentCache cache = cacheSize == 0 ? null : vaderSentimentService.getCache(cacheSize);
+            return new VaderSentimentScript(vaderSentimentService, vaderSentimentService.getLexicon(lexiconName),
+                    field, scoreIndex(score), cache);
+        }
+
+        @Override
+        public boolean needsScores() {
+            return false;
+        }
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        private static int scoreIndex(String score) {
+            switch (score) {
+                case "compound":
+                    return VaderSentimentService.COMPOUND;
+                case "positive":
+                    return VaderSentimentService.POSITIVE;
+                case "negative":
+                    return VaderSentimentService.NEGATIVE;
+                case "neutral":
+                    return VaderSentimentService.NEUTRAL;
+                default:
+                    throw new IllegalArgumentException("script [" + NAME + "] requires a [score] among [compound, "
+                            + "positive, negative, neutral] but was [" + score + "]");
+            }
+        }
+    }
+}
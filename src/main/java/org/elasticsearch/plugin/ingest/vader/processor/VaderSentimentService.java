@@ -1,45 +1,603 @@
 package org.elasticsearch.plugin.ingest.vader.processor;
 
-import com.vader.sentiment.analyzer.SentimentAnalyzer;
+import com.vader.sentiment.util.ScoreType;
 import org.apache.log4j.Logger;
 import org.elasticsearch.common.StopWatch;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Animesh Pandey
  *         Created on 4/23/2017.
  */
-public class VaderSentimentService {
+public class VaderSentimentService implements Closeable {
+    /**
+     * Index of the compound score in a polarity array.
+     */
+    public static final int COMPOUND = 0;
+
+    /**
+     * Index of the positive score in a polarity array.
+     */
+    public static final int POSITIVE = 1;
+
+    /**
+     * Index of the negative score in a polarity array.
+     */
+    public static final int NEGATIVE = 2;
+
+    /**
+     * Index of the neutral score in a polarity array.
+     */
+    public static final int NEUTRAL = 3;
+
+    /**
+     * Sentences of a long document are scored together in chunks of about this many characters.
+     */
+    static final int SENTENCE_CHUNK_CHARS = 2048;
+
+    /**
+     * Key of the statistics of processors created without a tag.
+     */
+    static final String UNTAGGED = "_untagged";
+
+    /**
+     * Extension of the lexicon overlay files.
+     */
+    static final String OVERLAY_SUFFIX = ".txt";
+
     private final Logger logger;
 
-    private ThreadLocal<SentimentAnalyzer> sentimentAnalyzerThreadLocal = new ThreadLocal<>();
+    /**
+     * Every ingest thread keeps its own {@link VaderScorer}, as the scorer is not thread safe.
+     * Its scratch buffers are reused from one document to the next.
+     */
+    private final ThreadLocal<VaderScorer> scorerThreadLocal = ThreadLocal.withInitial(VaderScorer::new);
+
+    /**
+     * Lexicon shared by every processor created from this service.
+     */
+    private volatile VaderLexicon lexicon;
+
+    /**
+     * Lexicons merged with the overlays of the configuration directory, by name. The map is never modified,
+     * a reload replaces it, so that processors reading it never wait for a reload.
+     */
+    private volatile Map<String, VaderLexicon> overlays = Collections.emptyMap();
+
+    /**
+     * Last version of the overlays whose file was removed since they were loaded, by name, still serving the
+     * processors and token filters using them until a file with their name is loaded again.
+     */
+    private volatile Map<String, VaderLexicon> removedOverlays = Collections.emptyMap();
+
+    /**
+     * Result caches shared by the processors of this node, by maximum number of entries.
+     */
+    private final ConcurrentMap<Integer, SentimentCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics of the processors of this node, by processor tag.
+     */
+    private final ConcurrentMap<String, ProcessorStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Rollups of the compound polarity of the processors of this node, by processor tag.
+     */
+    private final ConcurrentMap<String, SentimentRollup> rollups = new ConcurrentHashMap<>();
+
+    /**
+     * Number of threads of the {@link #sentencePool}.
+     */
+    private final int sentenceParallelism;
+
+    /**
+     * Bounded pool scoring the sentences of long documents in parallel, created by the first text scored sentence by
+     * sentence, so that nodes and tools that never split a text start no thread for it, or null until then.
+     */
+    private volatile ForkJoinPool sentencePool;
+
+    /**
+     * Whether {@link #close()} was called, after which no sentence pool is created anymore. Guarded by this service.
+     */
+    private boolean closed;
+
+    /**
+     * Dedicated thread pool of the node scoring the documents of the processors that ask for it, or null until the
+     * node created it.
+     */
+    private volatile ScoringPool scoringPool;
+
+    /**
+     * Lexicon compiled by {@link LexiconCompiler}, mapped by {@link #start()} when it exists, or null.
+     */
+    private final Path compiledLexicon;
 
     public VaderSentimentService() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param sentenceParallelism number of threads scoring the sentences of long documents
+     */
+    public VaderSentimentService(int sentenceParallelism) {
+        this(sentenceParallelism, null);
+    }
+
+    /**
+     * @param sentenceParallelism number of threads scoring the sentences of long documents
+     * @param compiledLexicon     lexicon compiled by {@link LexiconCompiler}, used instead of parsing the lexicon
+     *                            of the VADER library when the file exists, or null
+     */
+    public VaderSentimentService(int sentenceParallelism, Path compiledLexicon) {
         this.logger = Logger.getLogger(getClass());
+        this.compiledLexicon = compiledLexicon;
+        this.sentenceParallelism = sentenceParallelism;
     }
 
     protected VaderSentimentService start() {
         StopWatch sw = new StopWatch("Creating the VADER service");
         sw.start();
+        boolean mapped = compiledLexicon != null && Files.isRegularFile(compiledLexicon);
+        if (mapped) {
+            try {
+                lexicon = VaderLexicon.map(compiledLexicon);
+            } catch (IOException e) {
+                logger.warn("Failed to map the compiled VADER lexicon, parsing the lexicon of the VADER library"
+                        + " instead", e);
+                mapped = false;
+            }
+        }
+        if (!mapped) {
+            try {
+                lexicon = VaderLexicon.loadDefault();
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to load the VADER lexicon", e);
+            }
+        }
         sw.stop();
-        logger.info("Creating the service for sentiment analysis in " + sw.totalTime().toString());
+        logger.info("Creating the service for sentiment analysis with " + lexicon.size() + " lexicon entries "
+                + (mapped ? "mapped from [" + compiledLexicon + "]" : "parsed from the VADER library") + " in "
+                + sw.totalTime().toString());
         return this;
     }
 
-    public Map<String, Float> apply(String document) throws IOException {
+    /**
+     * @return the pool scoring the sentences of long documents, created on first use
+     * @throws IllegalStateException iff the service is closed
+     */
+    private ForkJoinPool getSentencePool() {
+        ForkJoinPool pool = sentencePool;
+        if (pool == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("the VADER service is closed");
+                }
+                pool = sentencePool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(sentenceParallelism, forkJoinPool -> {
+                        ForkJoinWorkerThread thread =
+                                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                        thread.setName("vader-sentences-" + thread.getPoolIndex());
+                        return thread;
+                    }, null, false);
+                    sentencePool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts the sentence pool down, if a text was ever scored sentence by sentence, waiting a little for the
+     * sentences being scored.
+     */
+    @Override
+    public void close() {
+        ForkJoinPool pool;
+        synchronized (this) {
+            closed = true;
+            pool = sentencePool;
+        }
+        if (pool == null) {
+            return;
+        }
+        pool.shutdown();
         try {
-            SentimentAnalyzer sentimentAnalyzer = new SentimentAnalyzer();
-            if (sentimentAnalyzerThreadLocal.get() == null || !sentimentAnalyzerThreadLocal.get().equals(sentimentAnalyzer)) {
-                sentimentAnalyzerThreadLocal.set(sentimentAnalyzer);
-            }
-            sentimentAnalyzer.setInputString(document);
-            sentimentAnalyzer.setInputStringProperties();
-            sentimentAnalyzer.analyze();
-            return sentimentAnalyzer.getPolarity();
-        } finally {
-            sentimentAnalyzerThreadLocal.remove();
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("The VADER sentence pool did not terminate within 10s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param scoringPool dedicated thread pool scoring the documents of the processors that ask for it
+     */
+    void setScoringPool(ScoringPool scoringPool) {
+        this.scoringPool = scoringPool;
+    }
+
+    /**
+     * @return the dedicated thread pool scoring the documents, or null if the node did not create it
+     */
+    ScoringPool getScoringPool() {
+        return scoringPool;
+    }
+
+    /**
+     * @return the lexicon loaded by {@link #start()}
+     */
+    VaderLexicon getLexicon() {
+        if (lexicon == null) {
+            throw new IllegalStateException("the VADER service has not been started");
+        }
+        return lexicon;
+    }
+
+    /**
+     * @param name name of an overlay loaded by {@link #loadOverlays(Path)}, null for the default lexicon
+     * @return the lexicon with that name, or the last version of an overlay whose file was removed
+     * @throws IllegalArgumentException iff no lexicon with that name was ever loaded
+     */
+    VaderLexicon getLexicon(String name) {
+        if (name == null) {
+            return getLexicon();
+        }
+        VaderLexicon overlay = overlays.get(name);
+        if (overlay == null) {
+            overlay = removedOverlays.get(name);
+        }
+        if (overlay == null) {
+            throw new IllegalArgumentException("lexicon [" + name + "] does not exist");
+        }
+        return overlay;
+    }
+
+    /**
+     * @return names of the lexicons loaded by {@link #loadOverlays(Path)}
+     */
+    Collection<String> getOverlayNames() {
+        return overlays.keySet();
+    }
+
+    /**
+     * Merges every {@code <name>.txt} file of the directory into a copy of the default lexicon, available to
+     * processors as the lexicon {@code <name>}, and replaces the previously loaded lexicons at once.
+     * <p>
+     * A file that can not be read is reported and its previous version, if any, is kept. An overlay whose file
+     * was removed, or is being replaced, is reported and its last version keeps serving
+     * {@link #getLexicon(String)}, so that documents scored with it do not fail.
+     *
+     * @param directory directory of the overlays, which may not exist
+     */
+    synchronized void loadOverlays(Path directory) {
+        VaderLexicon base = getLexicon();
+        Map<String, VaderLexicon> loaded = new HashMap<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + OVERLAY_SUFFIX)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    String name = fileName.substring(0, fileName.length() - OVERLAY_SUFFIX.length());
+                    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        loaded.put(name, base.withOverlay(reader));
+                        logger.info("Loaded the VADER lexicon [" + name + "] from [" + file + "]");
+                    } catch (IOException e) {
+                        logger.error("Failed to load the VADER lexicon [" + name + "] from [" + file + "]", e);
+                        if (overlays.containsKey(name)) {
+                            loaded.put(name, overlays.get(name));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to list the VADER lexicons of [" + directory + "]", e);
+                return;
+            }
+        }
+        Map<String, VaderLexicon> removed = new HashMap<>(removedOverlays);
+        for (Map.Entry<String, VaderLexicon> overlay : overlays.entrySet()) {
+            if (!loaded.containsKey(overlay.getKey())) {
+                logger.warn("The VADER lexicon [" + overlay.getKey() + "] was removed from [" + directory
+                        + "], its last version is kept");
+                removed.put(overlay.getKey(), overlay.getValue());
+            }
+        }
+        removed.keySet().removeAll(loaded.keySet());
+        removedOverlays = Collections.unmodifiableMap(removed);
+        overlays = Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * Scores the document without allocating.
+     *
+     * @param document text to score
+     * @param polarity array of at least four elements receiving the scores at {@link #COMPOUND},
+     *                 {@link #POSITIVE}, {@link #NEGATIVE} and {@link #NEUTRAL}
+     */
+    public void score(CharSequence document, float[] polarity) {
+        score(getLexicon(), document, polarity);
+    }
+
+    /**
+     * Scores the document with the given lexicon, see {@link #score(CharSequence, float[])}.
+     */
+    void score(VaderLexicon lexicon, CharSequence document, float[] polarity) {
+        scorerThreadLocal.get().score(lexicon, document, polarity);
+    }
+
+    /**
+     * Scores a batch of documents on the scorer of the calling thread, whose scratch buffers and lexicon stay
+     * warm from one document to the next, without allocating.
+     *
+     * @param documents  texts to score
+     * @param polarities array of at least {@code 4 * documents.size()} elements, receiving the scores of the
+     *                   document at index {@code i} at {@code 4 * i + }{@link #COMPOUND}, {@link #POSITIVE},
+     *                   {@link #NEGATIVE} and {@link #NEUTRAL}
+     */
+    public void scoreAll(List<? extends CharSequence> documents, float[] polarities) {
+        scoreAll(getLexicon(), documents, polarities);
+    }
+
+    /**
+     * Scores the documents with the given lexicon, see {@link #scoreAll(List, float[])}.
+     */
+    void scoreAll(VaderLexicon currentLexicon, List<? extends CharSequence> documents, float[] polarities) {
+        if (polarities.length < documents.size() * 4) {
+            throw new IllegalArgumentException("[" + polarities.length + "] elements can not hold the polarities of ["
+                    + documents.size() + "] documents");
+        }
+        scorerThreadLocal.get().scoreAll(currentLexicon, documents, polarities);
+    }
+
+    /**
+     * Scores the document sentence by sentence, in parallel on a pool owned by this service, and combines
+     * the sentences into the polarity of the whole document.
+     * <p>
+     * Unlike {@link #score(CharSequence, float[])}, the context of a word, such as a preceding negation or
+     * a "but", does not reach across sentences.
+     *
+     * @param document           text to score
+     * @param polarity           array of at least four elements receiving the scores of the document
+     * @param sentencePolarities receives the scores of each sentence, in order, when not null
+     */
+    public void scoreSentences(CharSequence document, float[] polarity, List<float[]> sentencePolarities) {
+        scoreSentences(getLexicon(), document, polarity, sentencePolarities);
+    }
+
+    /**
+     * Scores the document with the given lexicon, see {@link #scoreSentences(CharSequence, float[], List)}.
+     */
+    void scoreSentences(VaderLexicon currentLexicon, CharSequence document, float[] polarity,
+                        List<float[]> sentencePolarities) {
+        PolarityAccumulator[] sentences = accumulateSentences(currentLexicon, document,
+                SentenceSplitter.split(document));
+        PolarityAccumulator total = new PolarityAccumulator();
+        for (PolarityAccumulator sentence : sentences) {
+            total.merge(sentence);
+            if (sentencePolarities != null) {
+                float[] sentencePolarity = new float[4];
+                sentence.finish(sentencePolarity);
+                sentencePolarities.add(sentencePolarity);
+            }
+        }
+        total.finish(polarity);
+    }
+
+    /**
+     * Scores every sentence of the document on its own, in parallel on the sentence pool unless they are short
+     * enough to be scored on the calling thread.
+     *
+     * @param currentLexicon lexicon scoring the document
+     * @param document       text to score
+     * @param bounds         offsets of the sentences, as returned by {@link SentenceSplitter#split(CharSequence)}
+     * @return the sums of each sentence, in order
+     */
+    PolarityAccumulator[] accumulateSentences(VaderLexicon currentLexicon, CharSequence document, int[] bounds) {
+        PolarityAccumulator[] sentences = new PolarityAccumulator[bounds.length - 1];
+        SentenceTask task = new SentenceTask(currentLexicon, document, bounds, 0, sentences.length, sentences);
+        if (bounds[sentences.length] - bounds[0] <= SENTENCE_CHUNK_CHARS) {
+            task.compute();
+        } else {
+            getSentencePool().invoke(task);
+        }
+        return sentences;
+    }
+
+    /**
+     * Scores the document in chunks of consecutive sentences of about {@link #SENTENCE_CHUNK_CHARS} characters,
+     * and stops after the chunk during which the deadline passed. The polarity is then the polarity of the
+     * chunks scored so far.
+     *
+     * @param document text to score
+     * @param deadline value of {@link System#nanoTime()} after which scoring stops
+     * @param polarity array of at least four elements receiving the scores of the document
+     * @return true iff the whole document was scored
+     */
+    public boolean scoreWithin(CharSequence document, long deadline, float[] polarity) {
+        return scoreWithin(getLexicon(), document, deadline, polarity);
+    }
+
+    /**
+     * Scores the document with the given lexicon, see {@link #scoreWithin(CharSequence, long, float[])}.
+     */
+    boolean scoreWithin(VaderLexicon currentLexicon, CharSequence document, long deadline, float[] polarity) {
+        VaderScorer scorer = scorerThreadLocal.get();
+        int[] bounds = SentenceSplitter.split(document);
+        PolarityAccumulator total = new PolarityAccumulator();
+        boolean complete = true;
+        int from = 0;
+        for (int i = 1; i < bounds.length; i++) {
+            boolean last = i == bounds.length - 1;
+            if (!last && bounds[i + 1] - bounds[from] <= SENTENCE_CHUNK_CHARS) {
+                continue;
+            }
+            scorer.accumulate(currentLexicon, document, bounds[from], bounds[i], total);
+            from = i;
+            if (!last && System.nanoTime() - deadline > 0) {
+                complete = false;
+                break;
+            }
+        }
+        total.finish(polarity);
+        return complete;
+    }
+
+    /**
+     * Returns the node-level result cache holding up to {@code maxEntries} polarities.
+     * Processors asking for the same size share the same cache.
+     *
+     * @param maxEntries maximum number of cached polarities
+     * @return the shared cache
+     */
+    SentimentCache getCache(int maxEntries) {
+        return caches.computeIfAbsent(maxEntries, SentimentCache::new);
+    }
+
+    /**
+     * @return the result caches created so far
+     */
+    Collection<SentimentCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * Returns the statistics recorded by the processors with the given tag.
+     * Processors sharing a tag share their statistics.
+     *
+     * @param tag tag of the processor, null for untagged processors
+     * @return the shared statistics
+     */
+    ProcessorStats getStats(String tag) {
+        return stats.computeIfAbsent(tag == null ? UNTAGGED : tag, key -> new ProcessorStats());
+    }
+
+    /**
+     * @return the statistics of every processor tag seen so far
+     */
+    Map<String, ProcessorStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Returns the rollup of the processors with the given tag, created by the first of them.
+     * Processors sharing a tag share their rollup, and so have to share its settings.
+     *
+     * @param tag             tag of the processor
+     * @param field           document field whose value keys the rollup
+     * @param intervalMillis  width of a time bucket
+     * @param retainedBuckets number of most recent time buckets kept
+     * @param maxKeys         maximum number of keys of a time bucket
+     * @return the shared rollup
+     * @throws IllegalArgumentException iff the rollup of that tag has other settings
+     */
+    SentimentRollup getRollup(String tag, String field, long intervalMillis, int retainedBuckets, int maxKeys) {
+        SentimentRollup rollup = rollups.computeIfAbsent(tag, key ->
+                new SentimentRollup(field, intervalMillis, retainedBuckets, maxKeys));
+        if (!rollup.hasSettings(field, intervalMillis, retainedBuckets, maxKeys)) {
+            throw new IllegalArgumentException("processors tagged [" + tag + "] already roll up [" + rollup.getField()
+                    + "] with other settings");
+        }
+        return rollup;
+    }
+
+    /**
+     * Drops the rollups of the tags that no pipeline uses anymore.
+     *
+     * @param tags tags of the processors of the pipelines of the cluster that keep a rollup
+     */
+    void retainRollups(Collection<String> tags) {
+        rollups.keySet().retainAll(tags);
+    }
+
+    /**
+     * @return the rollups of every processor tag seen so far
+     */
+    Map<String, SentimentRollup> getRollups() {
+        return Collections.unmodifiableMap(rollups);
+    }
+
+    public Map<String, Float> apply(String document) {
+        float[] polarity = new float[4];
+        score(document, polarity);
+        return toMap(polarity);
+    }
+
+    /**
+     * @param documents texts to score
+     * @return the scores of the document at index {@code i} at {@code 4 * i + }{@link #COMPOUND},
+     * {@link #POSITIVE}, {@link #NEGATIVE} and {@link #NEUTRAL}
+     */
+    public float[] applyAll(List<? extends CharSequence> documents) {
+        float[] polarities = new float[documents.size() * 4];
+        scoreAll(documents, polarities);
+        return polarities;
+    }
+
+    /**
+     * @param polarity scores indexed by {@link #COMPOUND}, {@link #POSITIVE}, {@link #NEGATIVE} and {@link #NEUTRAL}
+     * @return the scores keyed by their {@link ScoreType}
+     */
+    static Map<String, Float> toMap(float[] polarity) {
+        Map<String, Float> result = new HashMap<>();
+        result.put(ScoreType.COMPOUND, polarity[COMPOUND]);
+        result.put(ScoreType.POSITIVE, polarity[POSITIVE]);
+        result.put(ScoreType.NEGATIVE, polarity[NEGATIVE]);
+        result.put(ScoreType.NEUTRAL, polarity[NEUTRAL]);
+        return result;
+    }
+
+    /**
+     * Scores a range of sentences, splitting it in halves until it is small enough.
+     */
+    private final class SentenceTask extends RecursiveAction {
+        private final VaderLexicon lexicon;
+        private final CharSequence document;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+        private final PolarityAccumulator[] sentences;
+
+        SentenceTask(VaderLexicon lexicon, CharSequence document, int[] bounds, int from, int to,
+                     PolarityAccumulator[] sentences) {
+            this.lexicon = lexicon;
+            this.document = document;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.sentences = sentences;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && bounds[to] - bounds[from] > SENTENCE_CHUNK_CHARS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SentenceTask(lexicon, document, bounds, from, middle, sentences),
+                        new SentenceTask(lexicon, document, bounds, middle, to, sentences));
+                return;
+            }
+            VaderScorer scorer = scorerThreadLocal.get();
+            for (int i = from; i < to; i++) {
+                sentences[i] = new PolarityAccumulator();
+                scorer.accumulate(lexicon, document, bounds[i], bounds[i + 1], sentences[i]);
+            }
         }
     }
 }
@@ -0,0 +1,354 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.client.ElasticsearchClient;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the statistics of the {@code vader_analyzer} processors and result caches of every node, summed over
+ * the cluster and broken down by node, for {@code GET /_vader/stats}.
+ *
+ * @author Animesh Pandey
+ */
+public class VaderStatsAction extends Action<VaderStatsAction.Request, VaderStatsAction.Response,
+        VaderStatsAction.RequestBuilder> {
+    public static final VaderStatsAction INSTANCE = new VaderStatsAction();
+    public static final String NAME = "cluster:monitor/vader/stats";
+
+    private VaderStatsAction() {
+        super(NAME);
+    }
+
+    @Override
+    public RequestBuilder newRequestBuilder(ElasticsearchClient client) {
+        return new RequestBuilder(client, this);
+    }
+
+    @Override
+    public Response newResponse() {
+        return new Response();
+    }
+
+    /**
+     * Statistics of some processor tags, all of them when no tag is given, on some nodes, all of them by default.
+     */
+    public static class Request extends BaseNodesRequest<Request> {
+        private String[] tags = Strings.EMPTY_ARRAY;
+
+        public Request() {
+        }
+
+        public Request(String... nodesIds) {
+            super(nodesIds);
+        }
+
+        public String[] tags() {
+            return tags;
+        }
+
+        public Request tags(String... tags) {
+            this.tags = tags;
+            return this;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            tags = in.readStringArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeStringArray(tags);
+        }
+    }
+
+    public static class RequestBuilder extends NodesOperationRequestBuilder<Request, Response, RequestBuilder> {
+        RequestBuilder(ElasticsearchClient client, VaderStatsAction action) {
+            super(client, action, new Request());
+        }
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+        private String[] tags;
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(String nodeId, Request request) {
+            super(nodeId);
+            this.tags = request.tags();
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            tags = in.readStringArray();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeStringArray(tags);
+        }
+    }
+
+    /**
+     * Statistics of the processor tags and the result caches of one node.
+     */
+    public static class NodeResponse extends BaseNodeResponse {
+        private Map<String, ProcessorStats> processors;
+        private List<CacheStats> caches;
+
+        public NodeResponse() {
+        }
+
+        NodeResponse(DiscoveryNode node, Map<String, ProcessorStats> processors, List<CacheStats> caches) {
+            super(node);
+            this.processors = processors;
+            this.caches = caches;
+        }
+
+        static NodeResponse readNodeResponse(StreamInput in) throws IOException {
+            NodeResponse response = new NodeResponse();
+            response.readFrom(in);
+            return response;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            int size = in.readVInt();
+            processors = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                processors.put(in.readString(), new ProcessorStats(in));
+            }
+            caches = in.readList(CacheStats::new);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(processors.size());
+            for (Map.Entry<String, ProcessorStats> entry : processors.entrySet()) {
+                out.writeString(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+            out.writeList(caches);
+        }
+    }
+
+    /**
+     * Statistics of every node that answered, summed by processor tag and by cache size, followed by those of
+     * every node.
+     */
+    public static class Response extends BaseNodesResponse<NodeResponse> implements ToXContent {
+        Response() {
+        }
+
+        Response(ClusterName clusterName, List<NodeResponse> nodes, List<FailedNodeException> failures) {
+            super(clusterName, nodes, failures);
+        }
+
+        @Override
+        protected List<NodeResponse> readNodesFrom(StreamInput in) throws IOException {
+            return in.readList(NodeResponse::readNodeResponse);
+        }
+
+        @Override
+        protected void writeNodesTo(StreamOutput out, List<NodeResponse> nodes) throws IOException {
+            out.writeStreamableList(nodes);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            Map<String, ProcessorStats> processors = new TreeMap<>();
+            Map<Integer, CacheStats> caches = new TreeMap<>();
+            for (NodeResponse node : getNodes()) {
+                for (Map.Entry<String, ProcessorStats> entry : node.processors.entrySet()) {
+                    processors.computeIfAbsent(entry.getKey(), tag -> new ProcessorStats()).add(entry.getValue());
+                }
+                for (CacheStats cache : node.caches) {
+                    caches.computeIfAbsent(cache.maxEntries, CacheStats::new).add(cache);
+                }
+            }
+            toXContent(builder, processors, caches.values());
+            builder.startObject("nodes");
+            for (NodeResponse node : getNodes()) {
+                builder.startObject(node.getNode().getId());
+                builder.field("name", node.getNode().getName());
+                toXContent(builder, new TreeMap<>(node.processors), node.caches);
+                builder.endObject();
+            }
+            builder.endObject();
+            return builder;
+        }
+
+        private static void toXContent(XContentBuilder builder, Map<String, ProcessorStats> processors,
+                                       Collection<CacheStats> caches) throws IOException {
+            builder.startObject("processors");
+            for (Map.Entry<String, ProcessorStats> entry : processors.entrySet()) {
+                builder.field(entry.getKey());
+                entry.getValue().toXContent(builder, ToXContent.EMPTY_PARAMS);
+            }
+            builder.endObject();
+            builder.startArray("caches");
+            for (CacheStats cache : caches) {
+                cache.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            }
+            builder.endArray();
+        }
+    }
+
+    /**
+     * Counters of the result caches of one size, read from a {@link SentimentCache} and summed over the nodes.
+     */
+    static final class CacheStats implements ToXContent, Writeable {
+        private final int maxEntries;
+        private long count;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long rejections;
+
+        CacheStats(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        CacheStats(SentimentCache cache) {
+            this(cache.getMaxEntries());
+            this.count = cache.count();
+            this.hits = cache.hits();
+            this.misses = cache.misses();
+            this.evictions = cache.evictions();
+            this.rejections = cache.rejections();
+        }
+
+        CacheStats(StreamInput in) throws IOException {
+            this(in.readVInt());
+            this.count = in.readVLong();
+            this.hits = in.readVLong();
+            this.misses = in.readVLong();
+            this.evictions = in.readVLong();
+            this.rejections = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(maxEntries);
+            out.writeVLong(count);
+            out.writeVLong(hits);
+            out.writeVLong(misses);
+            out.writeVLong(evictions);
+            out.writeVLong(rejections);
+        }
+
+        void add(CacheStats other) {
+            count += other.count;
+            hits += other.hits;
+            misses += other.misses;
+            evictions += other.evictions;
+            rejections += other.rejections;
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("cache_size", maxEntries);
+            builder.field("count", count);
+            builder.field("hits", hits);
+            builder.field("misses", misses);
+            builder.field("evictions", evictions);
+            builder.field("rejections", rejections);
+            builder.endObject();
+            return builder;
+        }
+    }
+
+    /**
+     * Reads the statistics of the {@link VaderSentimentService} of every node.
+     */
+    public static class TransportVaderStatsAction
+            extends TransportNodesAction<Request, Response, NodeRequest, NodeResponse> {
+        private final VaderSentimentService vaderSentimentService;
+
+        @Inject
+        public TransportVaderStatsAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
+                                         TransportService transportService, ActionFilters actionFilters,
+                                         IndexNameExpressionResolver indexNameExpressionResolver,
+                                         VaderSentimentService vaderSentimentService) {
+            super(settings, NAME, threadPool, clusterService, transportService, actionFilters,
+                    indexNameExpressionResolver, Request::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT,
+                    NodeResponse.class);
+            this.vaderSentimentService = vaderSentimentService;
+        }
+
+        @Override
+        protected Response newResponse(Request request, List<NodeResponse> responses,
+                                       List<FailedNodeException> failures) {
+            return new Response(clusterService.getClusterName(), responses, failures);
+        }
+
+        @Override
+        protected NodeRequest newNodeRequest(String nodeId, Request request) {
+            return new NodeRequest(nodeId, request);
+        }
+
+        @Override
+        protected NodeResponse newNodeResponse() {
+            return new NodeResponse();
+        }
+
+        @Override
+        protected NodeResponse nodeOperation(NodeRequest request) {
+            List<String> tags = Arrays.asList(request.tags);
+            Map<String, ProcessorStats> processors = new HashMap<>();
+            for (Map.Entry<String, ProcessorStats> entry : vaderSentimentService.getStats().entrySet()) {
+                if (tags.isEmpty() || tags.contains(entry.getKey())) {
+                    processors.put(entry.getKey(), entry.getValue());
+                }
+            }
+            List<CacheStats> caches = new ArrayList<>();
+            for (SentimentCache cache : vaderSentimentService.getCaches()) {
+                caches.add(new CacheStats(cache));
+            }
+            return new NodeResponse(clusterService.localNode(), processors, caches);
+        }
+
+        @Override
+        protected boolean accumulateExceptions() {
+            return false;
+        }
+    }
+}
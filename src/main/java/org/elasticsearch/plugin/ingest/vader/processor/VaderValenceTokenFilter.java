@@ -0,0 +1,147 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.payloads.PayloadHelper;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Token filter marking the tokens found in a VADER lexicon, so that sentiment is part of the index itself.
+ * <p>
+ * In {@link Mode#PAYLOAD} mode, the valence of a sentiment-bearing token is attached to it as a float payload,
+ * encoded by {@link PayloadHelper#encodeFloat(float, byte[], int)}. In {@link Mode#MARK} mode, a
+ * {@link #POSITIVE_TOKEN} or {@link #NEGATIVE_TOKEN} token is added at the position of every sentiment-bearing
+ * token, so that term queries can filter or boost on sentiment. Other tokens are kept unchanged, or removed
+ * when only sentiment-bearing tokens are kept.
+ * <p>
+ * Tokens are looked up in the lexicon directly from their term buffer and the marker buffers are reused. Every
+ * sentiment-bearing token gets a payload of its own, as filters further down the chain may buffer tokens or capture
+ * their state, and would see a shared payload change under them. The lexicon is read again on every {@link #reset()}, so
+ * reloaded overlays apply from the next document on, and an overlay whose file was removed keeps marking with its
+ * last version, as {@link VaderSentimentService#getLexicon(String)} falls back to it.
+ *
+ * @author Animesh Pandey
+ */
+final class VaderValenceTokenFilter extends TokenFilter {
+    /**
+     * Token added at the position of a word of positive valence in {@link Mode#MARK} mode.
+     */
+    static final String POSITIVE_TOKEN = "<positive>";
+
+    /**
+     * Token added at the position of a word of negative valence in {@link Mode#MARK} mode.
+     */
+    static final String NEGATIVE_TOKEN = "<negative>";
+
+    /**
+     * Type of the tokens added in {@link Mode#MARK} mode.
+     */
+    static final String SENTIMENT_TYPE = "<SENTIMENT>";
+
+    /**
+     * How sentiment-bearing tokens are marked.
+     */
+    enum Mode {
+        PAYLOAD, MARK;
+
+        static Mode parse(String mode) {
+            for (Mode value : values()) {
+                if (value.toString().equals(mode)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("mode must be one of [payload, mark] but was [" + mode + "]");
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+    private final PayloadAttribute payloadAtt = addAttribute(PayloadAttribute.class);
+    private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+    private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+    private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+
+    private final VaderSentimentService vaderSentimentService;
+    private final String lexiconName;
+    private final Mode mode;
+    private final boolean keepOnlySentiment;
+    private final float minValence;
+
+    private VaderLexicon lexicon;
+    private String pendingMarker;
+    private int markerStart;
+    private int markerEnd;
+
+    /**
+     * @param input                 tokens to mark
+     * @param vaderSentimentService service holding the lexicons
+     * @param lexiconName           name of a lexicon overlay, null for the default lexicon
+     * @param mode                  how sentiment-bearing tokens are marked
+     * @param keepOnlySentiment     whether the tokens without sentiment are removed
+     * @param minValence            absolute valence from which a token bears sentiment
+     */
+    VaderValenceTokenFilter(TokenStream input, VaderSentimentService vaderSentimentService, String lexiconName,
+                            Mode mode, boolean keepOnlySentiment, float minValence) {
+        super(input);
+        this.vaderSentimentService = vaderSentimentService;
+        this.lexiconName = lexiconName;
+        this.mode = mode;
+        this.keepOnlySentiment = keepOnlySentiment;
+        this.minValence = minValence;
+        this.lexicon = vaderSentimentService.getLexicon(lexiconName);
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (pendingMarker != null) {
+            clearAttributes();
+            termAtt.append(pendingMarker);
+            posIncAtt.setPositionIncrement(0);
+            offsetAtt.setOffset(markerStart, markerEnd);
+            typeAtt.setType(SENTIMENT_TYPE);
+            pendingMarker = null;
+            return true;
+        }
+        int skippedPositions = 0;
+        while (input.incrementToken()) {
+            int index = lexicon.find(termAtt, 0, termAtt.length());
+            float valence = index < 0 ? 0.0F : lexicon.valence(index);
+            if (valence != 0.0F && Math.abs(valence) >= minValence) {
+                if (mode == Mode.PAYLOAD) {
+                    payloadAtt.setPayload(new BytesRef(PayloadHelper.encodeFloat(valence)));
+                } else {
+                    pendingMarker = valence > 0 ? POSITIVE_TOKEN : NEGATIVE_TOKEN;
+                    markerStart = offsetAtt.startOffset();
+                    markerEnd = offsetAtt.endOffset();
+                }
+            } else if (keepOnlySentiment) {
+                skippedPositions += posIncAtt.getPositionIncrement();
+                continue;
+            }
+            if (skippedPositions > 0) {
+                posIncAtt.setPositionIncrement(posIncAtt.getPositionIncrement() + skippedPositions);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        pendingMarker = null;
+        lexicon = vaderSentimentService.getLexicon(lexiconName);
+    }
+}
@@ -0,0 +1,54 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.analysis.AbstractTokenFilterFactory;
+
+/**
+ * Factory of the {@code vader_valence} token filter, configured with:
+ * <ul>
+ * <li>{@code mode}, {@code payload} to attach the valence of sentiment-bearing tokens as a payload, or
+ * {@code mark} to add a {@code <positive>} or {@code <negative>} token next to them, {@code payload} by
+ * default</li>
+ * <li>{@code keep_only_sentiment}, whether tokens without sentiment are removed, false by default</li>
+ * <li>{@code min_valence}, absolute valence from which a token bears sentiment, 0 by default</li>
+ * <li>{@code lexicon}, name of a lexicon overlay, the default lexicon otherwise</li>
+ * </ul>
+ *
+ * @author Animesh Pandey
+ */
+final class VaderValenceTokenFilterFactory extends AbstractTokenFilterFactory {
+    /**
+     * Name under which the token filter is registered.
+     */
+    static final String NAME = "vader_valence";
+
+    private final VaderSentimentService vaderSentimentService;
+    private final String lexiconName;
+    private final VaderValenceTokenFilter.Mode mode;
+    private final boolean keepOnlySentiment;
+    private final float minValence;
+
+    VaderValenceTokenFilterFactory(IndexSettings indexSettings, String name, Settings settings,
+                                   VaderSentimentService vaderSentimentService) {
+        super(indexSettings, name, settings);
+        this.vaderSentimentService = vaderSentimentService;
+        this.lexiconName = settings.get("lexicon");
+        this.mode = VaderValenceTokenFilter.Mode.parse(settings.get("mode", VaderValenceTokenFilter.Mode.PAYLOAD
+                .toString()));
+        this.keepOnlySentiment = settings.getAsBoolean("keep_only_sentiment", false);
+        this.minValence = settings.getAsFloat("min_valence", 0.0F);
+        if (minValence < 0) {
+            throw new IllegalArgumentException("[min_valence] must not be negative but was [" + minValence + "]");
+        }
+        // fails on an unknown lexicon when the index is created rather than when a document is analyzed
+        vaderSentimentService.getLexicon(lexiconName);
+    }
+
+    @Override
+    public TokenStream create(TokenStream tokenStream) {
+        return new VaderValenceTokenFilter(tokenStream, vaderSentimentService, lexiconName, mode,
+                keepOnlySentiment, minValence);
+    }
+}
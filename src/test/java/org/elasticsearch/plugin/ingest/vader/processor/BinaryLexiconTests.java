@@ -0,0 +1,77 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Tests for the lexicon compiled by {@link LexiconCompiler} and mapped from a {@link BinaryLexicon}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class BinaryLexiconTests extends ESTestCase {
+
+    public void testThatMappedLexiconFindsEveryWord() throws IOException {
+        VaderLexicon lexicon = VaderLexicon.loadDefault();
+        Path file = createTempDir().resolve(BinaryLexicon.FILE_NAME);
+        LexiconCompiler.main(new String[]{file.toString()});
+        VaderLexicon mapped = VaderLexicon.map(file);
+
+        assertThat(mapped.size(), equalTo(lexicon.size()));
+        assertThat(mapped.entries(), equalTo(lexicon.entries()));
+        assertThat(mapped.getContentHash(), equalTo(lexicon.getContentHash()));
+        for (Map.Entry<String, Float> entry : lexicon.entries().entrySet()) {
+            String word = "[" + entry.getKey().toUpperCase(Locale.ROOT) + "]";
+            int expected = lexicon.find(word, 1, word.length() - 1);
+            int index = mapped.find(word, 1, word.length() - 1);
+            assertThat(word, index < 0, equalTo(expected < 0));
+            if (expected >= 0) {
+                assertThat(word, mapped.valence(index), equalTo(lexicon.valence(expected)));
+            }
+        }
+        assertThat(mapped.find("goodgood", 0, 8), lessThan(0));
+        assertThat(mapped.find("good", 0, 3), lessThan(0));
+    }
+
+    public void testThatMappedLexiconScoresLikeTheLibrary() throws IOException {
+        Path file = createTempDir().resolve(BinaryLexicon.FILE_NAME);
+        LexiconCompiler.main(new String[]{file.toString()});
+        VaderSentimentService parsed = new VaderSentimentService(1).start();
+        VaderSentimentService mapped = new VaderSentimentService(1, file).start();
+        for (String document : Arrays.asList("VADER is VERY SMART, really handsome, and INCREDIBLY FUNNY!!!",
+                "The plot was good, but the characters are uncompelling and the dialog is not great.",
+                "Today kinda sux! But I'll get by, lol", "Make sure you :) or :D today!")) {
+            assertThat(document, mapped.apply(document), equalTo(parsed.apply(document)));
+        }
+    }
+
+    public void testThatOtherFilesAreRejected() throws IOException {
+        Path file = createTempDir().resolve(BinaryLexicon.FILE_NAME);
+        Files.write(file, "good\t1.9\n".getBytes(StandardCharsets.UTF_8));
+        expectThrows(IOException.class, () -> VaderLexicon.map(file));
+    }
+
+    public void testThatTruncatedFilesAreRejected() throws IOException {
+        Path file = createTempDir().resolve(BinaryLexicon.FILE_NAME);
+        LexiconCompiler.main(new String[]{file.toString()});
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 64));
+        expectThrows(IOException.class, () -> VaderLexicon.map(file));
+
+        VaderSentimentService service = new VaderSentimentService(1, file).start();
+        assertThat(service.getLexicon().size(), equalTo(VaderLexicon.loadDefault().size()));
+        assertThat(service.apply("VADER is smart and funny!"),
+                equalTo(new VaderSentimentService(1).start().apply("VADER is smart and funny!")));
+    }
+}
@@ -0,0 +1,64 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Tests for the offline scoring of documents by {@link BulkScorer}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class BulkScorerTests extends ESTestCase {
+
+    public void testThatDocumentsAreWrittenAsIndexActions() throws Exception {
+        Path input = createTempDir().resolve("reviews.json.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(input)),
+                StandardCharsets.UTF_8)) {
+            writer.write("{\"id\":\"a\",\"content\":\"The food is really good!\"}\n");
+            writer.write("{\"id\":\"b\",\"content\":\n");
+            writer.write("\n");
+            writer.write("{\"id\":\"c\",\"content\":\"The service was horrible.\"}\n");
+        }
+
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_field", "content");
+        config.put("target_field", "polarity");
+        VaderProcessor processor = new VaderProcessor.Factory(service).create(null, BulkScorer.TAG, config);
+        BulkScorer scorer = new BulkScorer(service, processor, "reviews", null, "id");
+
+        StringWriter output = new StringWriter();
+        ByteArrayOutputStream progress = new ByteArrayOutputStream();
+        long failed = scorer.run(Collections.singletonList(input.toString()), output, 2,
+                new PrintStream(progress, true, "UTF-8"));
+
+        assertThat(failed, equalTo(1L));
+        String[] lines = output.toString().split("\n");
+        assertThat(lines.length, equalTo(4));
+        assertThat(lines[0], equalTo("{\"index\":{\"_index\":\"reviews\",\"_id\":\"a\"}}"));
+        assertThat(lines[1], containsString("\"polarity\":{"));
+        assertThat(lines[2], equalTo("{\"index\":{\"_index\":\"reviews\",\"_id\":\"c\"}}"));
+        assertThat(lines[3], containsString("\"polarity\":{"));
+        String report = progress.toString("UTF-8");
+        assertThat(report, startsWith("[" + input + ":2] "));
+        assertThat(report, containsString("done: 2 documents written, 1 failed, 2 scored"));
+    }
+}
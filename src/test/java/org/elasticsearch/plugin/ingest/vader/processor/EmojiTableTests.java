@@ -0,0 +1,45 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Tests for the code point indexed valences of an {@link EmojiTable}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class EmojiTableTests extends ESTestCase {
+
+    public void testThatBothPlanesAreLookedUp() throws IOException {
+        EmojiTable table = EmojiTable.read(new BufferedReader(new StringReader(
+                "2764\t2.7\tred heart\n\n1F600\t1.7\tgrinning face\n1F62D\t-2.6\n1F600\t1.5\n")));
+        assertThat(table.size(), equalTo(3));
+        assertThat(table.valence(0x2764), equalTo(2.7F));
+        assertThat(table.valence(0x1F600), equalTo(1.5F));
+        assertThat(table.valence(0x1F62D), equalTo(-2.6F));
+        assertTrue(Float.isNaN(table.valence(0x2765)));
+        assertTrue(Float.isNaN(table.valence(0x1F601)));
+        assertTrue(Float.isNaN(table.valence('a')));
+    }
+
+    public void testThatDefaultTableIsLoaded() {
+        assertThat(EmojiTable.DEFAULT.size(), greaterThan(100));
+        assertThat(EmojiTable.DEFAULT.valence(0x1F44D), greaterThan(0.0F));
+        assertTrue(EmojiTable.isModifier(0x1F3FD));
+        assertTrue(Float.isNaN(EmojiTable.DEFAULT.valence(0x1F3FD)));
+    }
+
+    public void testThatInvalidEntriesAreRejected() {
+        expectThrows(IOException.class, () -> EmojiTable.read(new BufferedReader(new StringReader("1F600\n"))));
+        expectThrows(IOException.class, () -> EmojiTable.read(new BufferedReader(new StringReader("smile\t1.5\n"))));
+        expectThrows(IOException.class, () -> EmojiTable.read(new BufferedReader(new StringReader("61\t1.5\n"))));
+    }
+}
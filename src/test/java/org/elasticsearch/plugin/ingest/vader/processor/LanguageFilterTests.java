@@ -0,0 +1,72 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.plugin.ingest.vader.processor.LanguageFilter.Language;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the guess of the language of a text by {@link LanguageFilter}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class LanguageFilterTests extends ESTestCase {
+
+    public void testThatEnglishIsDetected() {
+        assertThat(LanguageFilter.detect("The plot was good, but the characters are uncompelling and the dialog "
+                + "is not great."), equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("Today kinda sux! But I'll get by, lol"), equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("I had a really nice caf\u00e9 au lait, would go back"),
+                equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("The cr\u00e8me br\u00fbl\u00e9e at Caf\u00e9 Rouge was great"),
+                equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("Ordered the jalape\u00f1o pi\u00f1a colada, so good"),
+                equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("It is what it is"), equalTo(Language.ENGLISH));
+    }
+
+    public void testThatShortTextsAreGivenTheBenefitOfTheDoubt() {
+        assertThat(LanguageFilter.detect("lol"), equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect("Make sure you :) or :D today!"), equalTo(Language.ENGLISH));
+        assertThat(LanguageFilter.detect(":-( !!!"), equalTo(Language.ENGLISH));
+    }
+
+    public void testThatOtherLatinLanguagesAreDetected() {
+        assertThat(LanguageFilter.detect("Das Essen war nicht gut und der Service ist auch sehr langsam."),
+                equalTo(Language.LATIN));
+        assertThat(LanguageFilter.detect("Le film est tr\u00e8s beau mais la fin est d\u00e9cevante."),
+                equalTo(Language.LATIN));
+        assertThat(LanguageFilter.detect("La comida estaba muy buena pero el servicio fue lento."),
+                equalTo(Language.LATIN));
+        assertThat(LanguageFilter.detect("Het eten was niet lekker maar de bediening was wel goed."),
+                equalTo(Language.LATIN));
+    }
+
+    public void testThatOtherScriptsAreDetected() {
+        // "a good film, but" in Russian, "very good" in Japanese and in Arabic
+        String russian = "\u0425\u043e\u0440\u043e\u0448\u0438\u0439 \u0444\u0438\u043b\u044c\u043c, but";
+        assertThat(LanguageFilter.detect(russian), equalTo(Language.OTHER));
+        assertThat(LanguageFilter.detect("\u3068\u3066\u3082\u826f\u3044"), equalTo(Language.OTHER));
+        assertThat(LanguageFilter.detect("\u0631\u0627\u0626\u0639 \u062c\u062f\u0627"), equalTo(Language.OTHER));
+    }
+
+    public void testThatOnlyTheStartOfTheTextIsSampled() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < LanguageFilter.SAMPLE_CHARS) {
+            text.append("The book was good. ");
+        }
+        text.append("Das Buch war nicht gut und der Schluss ist auch sehr schlecht. ");
+        text.append(text.toString().replace("The book was good. ", "Das ist nicht gut. "));
+        assertThat(LanguageFilter.detect(text), equalTo(Language.ENGLISH));
+    }
+
+    public void testThatEnglishOnlyAcceptsEnglish() {
+        LanguageFilter filter = new LanguageFilter(true, null);
+        assertTrue(filter.accepts(Language.ENGLISH));
+        assertFalse(filter.accepts(Language.LATIN));
+        assertFalse(filter.accepts(Language.OTHER));
+        assertTrue(new LanguageFilter(false, "language").accepts(Language.OTHER));
+    }
+}
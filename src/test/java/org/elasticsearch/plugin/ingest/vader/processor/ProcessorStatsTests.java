@@ -0,0 +1,84 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Tests for the {@link ProcessorStats} counters and latency histogram.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class ProcessorStatsTests extends ESTestCase {
+
+    public void testThatBucketsCoverTheirValues() {
+        for (int run = 0; run < 1000; run++) {
+            long nanos = randomBoolean() ? randomIntBetween(0, 1000) : randomLong() & Long.MAX_VALUE;
+            int bucket = ProcessorStats.bucket(nanos);
+            assertThat(ProcessorStats.upperBound(bucket), greaterThanOrEqualTo(nanos));
+            if (bucket > 0) {
+                assertThat(ProcessorStats.upperBound(bucket - 1), lessThanOrEqualTo(nanos - 1));
+            }
+            assertThat((double) ProcessorStats.upperBound(bucket), lessThanOrEqualTo(nanos * 1.25 + 1));
+        }
+    }
+
+    public void testThatPercentilesFollowTheRecordedLatencies() {
+        ProcessorStats stats = new ProcessorStats();
+        assertThat(stats.percentile(0.5), equalTo(0L));
+        for (int i = 1; i <= 99; i++) {
+            stats.scored(10, 1000);
+        }
+        stats.failed(1_000_000);
+        assertThat(stats.percentile(0.50), equalTo(ProcessorStats.upperBound(ProcessorStats.bucket(1000))));
+        assertThat(stats.percentile(0.99), equalTo(ProcessorStats.upperBound(ProcessorStats.bucket(1000))));
+        assertThat(stats.percentile(1.0), equalTo(ProcessorStats.upperBound(ProcessorStats.bucket(1_000_000))));
+    }
+
+    public void testThatCountersAreAccumulated() {
+        ProcessorStats stats = new ProcessorStats();
+        stats.scored(12, 100);
+        stats.scored(30, 200);
+        stats.skipped(5);
+        stats.failed(7);
+        assertThat(stats.getScored(), equalTo(2L));
+        assertThat(stats.getSkipped(), equalTo(1L));
+        assertThat(stats.getFailed(), equalTo(1L));
+        assertThat(stats.getCharacters(), equalTo(42L));
+        assertThat(stats.getNanos(), equalTo(312L));
+    }
+
+    public void testThatStatsOfSeveralNodesAreSummed() throws IOException {
+        ProcessorStats first = new ProcessorStats();
+        for (int i = 0; i < 99; i++) {
+            first.scored(10, 1000);
+        }
+        first.unchanged();
+        first.skipped(20);
+        ProcessorStats second = new ProcessorStats();
+        second.failed(1_000_000);
+        second.saturated();
+        BytesStreamOutput out = new BytesStreamOutput();
+        second.writeTo(out);
+
+        ProcessorStats total = new ProcessorStats();
+        total.add(first);
+        total.add(new ProcessorStats(out.bytes().streamInput()));
+        assertThat(total.getScored(), equalTo(99L));
+        assertThat(total.getSkipped(), equalTo(1L));
+        assertThat(total.getUnchanged(), equalTo(1L));
+        assertThat(total.getSaturated(), equalTo(1L));
+        assertThat(total.getFailed(), equalTo(1L));
+        assertThat(total.getCharacters(), equalTo(990L));
+        assertThat(total.getNanos(), equalTo(99 * 1000L + 20 + 1_000_000));
+        assertThat(total.percentile(0.5), equalTo(ProcessorStats.upperBound(ProcessorStats.bucket(1000))));
+        assertThat(total.percentile(1.0), equalTo(ProcessorStats.upperBound(ProcessorStats.bucket(1_000_000))));
+    }
+}
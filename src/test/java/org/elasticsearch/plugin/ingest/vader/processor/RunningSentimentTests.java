@@ -0,0 +1,96 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for the incremental scoring of growing texts by {@link RunningSentiment}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class RunningSentimentTests extends ESTestCase {
+
+    public void testThatAppendedTextIsScoredLikeTheWholeText() {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        VaderLexicon lexicon = service.getLexicon();
+        String[] words = {"good", "GOOD", "bad", "not", "very", "but", "least", "never", "so", "horrible.", "sad!",
+                "great?", "\n", "funny.", "ok", ":)", "!", "?"};
+        for (int run = 0; run < 50; run++) {
+            StringBuilder thread = new StringBuilder();
+            Map<String, Object> stored = null;
+            for (int message = 0; message < 10; message++) {
+                int length = randomIntBetween(0, 6);
+                for (int i = 0; i < length; i++) {
+                    thread.append(randomFrom(words)).append(randomFrom(" ", "", "\n"));
+                }
+                String text = thread.toString().trim();
+                RunningSentiment running = RunningSentiment.fromMap(stored);
+                if (running == null || !running.isContinuedBy(text, lexicon)) {
+                    running = RunningSentiment.empty(lexicon);
+                }
+                float[] polarity = new float[4];
+                stored = running.update(service, lexicon, text, polarity).toMap();
+                float[] expected = new float[4];
+                service.scoreSentences(text, expected, null);
+                assertThat(text, polarity, equalTo(expected));
+            }
+        }
+    }
+
+    public void testThatEditedTextIsScoredFromItsStart() {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        VaderLexicon lexicon = service.getLexicon();
+        RunningSentiment state = RunningSentiment.empty(lexicon).update(service, lexicon,
+                "The food was good. The service was slow", new float[4]);
+        assertThat(state.getOffset(), equalTo(18));
+        assertThat(state.isContinuedBy("The food was good. The service was slow but friendly.", lexicon),
+                equalTo(true));
+        assertThat(state.isContinuedBy("The food was great. The service was slow", lexicon), equalTo(false));
+        assertThat(state.isContinuedBy("The food was good", lexicon), equalTo(false));
+
+        RunningSentiment stored = RunningSentiment.fromMap(state.toMap());
+        assertThat(stored.getOffset(), equalTo(18));
+        assertThat(stored.isContinuedBy("The food was good. The service was slow.", lexicon), equalTo(true));
+    }
+
+    public void testThatTextScoredWithAnotherLexiconIsScoredFromItsStart() throws IOException {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        VaderLexicon lexicon = service.getLexicon();
+        RunningSentiment state = RunningSentiment.fromMap(RunningSentiment.empty(lexicon).update(service, lexicon,
+                "The food was good. The service was slow", new float[4]).toMap());
+        String text = "The food was good. The service was slow but friendly.";
+
+        VaderLexicon reloaded = VaderLexicon.read(new BufferedReader(new StringReader("good\t1.9\nslow\t-0.5\n")));
+        VaderLexicon same = reloaded.withOverlay(new BufferedReader(new StringReader("good\t1.9\n")));
+        assertThat(same.getContentHash(), equalTo(reloaded.getContentHash()));
+        VaderLexicon edited = reloaded.withOverlay(new BufferedReader(new StringReader("good\t2.5\n")));
+        assertThat(edited.getContentHash(), not(equalTo(reloaded.getContentHash())));
+
+        RunningSentiment scored = RunningSentiment.empty(reloaded).update(service, reloaded,
+                "The food was good. The service was slow", new float[4]);
+        assertThat(scored.isContinuedBy(text, same), equalTo(true));
+        assertThat(scored.isContinuedBy(text, edited), equalTo(false));
+        assertThat(state.isContinuedBy(text, edited), equalTo(false));
+    }
+
+    public void testThatInvalidStateIsIgnored() throws IOException {
+        assertThat(RunningSentiment.fromMap("state"), nullValue());
+        VaderLexicon lexicon = VaderLexicon.read(new BufferedReader(new StringReader("good\t1.9\n")));
+        Map<String, Object> state = RunningSentiment.empty(lexicon).toMap();
+        state.put(RunningSentiment.PREFIX, "not hexadecimal");
+        assertThat(RunningSentiment.fromMap(state), nullValue());
+        state = RunningSentiment.empty(lexicon).toMap();
+        state.remove(RunningSentiment.SUM);
+        assertThat(RunningSentiment.fromMap(state), nullValue());
+    }
+}
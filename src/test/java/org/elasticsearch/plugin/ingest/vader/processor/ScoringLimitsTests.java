@@ -0,0 +1,95 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests for the truncation of long texts by {@link ScoringLimits} and for scoring within a time budget.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class ScoringLimitsTests extends ESTestCase {
+    private static final String TEXT = "The book was good. The plot was bad. The end was great!";
+
+    public void testThatTextsWithinLimitsAreNotCopied() {
+        assertThat(ScoringLimits.NONE.truncate(TEXT), sameInstance(TEXT));
+        assertThat(new ScoringLimits(TEXT.length(), 0, false, 0).truncate(TEXT), sameInstance(TEXT));
+        assertThat(new ScoringLimits(0, 12, true, 0).truncate(TEXT), sameInstance(TEXT));
+    }
+
+    public void testThatPrefixEndsOnWordBoundary() {
+        assertThat(new ScoringLimits(20, 0, false, 0).truncate(TEXT).toString(), equalTo("The book was good. "));
+        assertThat(new ScoringLimits(0, 3, false, 0).truncate(TEXT).toString(), equalTo("The book was "));
+        assertThat(new ScoringLimits(20, 2, false, 0).truncate(TEXT).toString(), equalTo("The book "));
+    }
+
+    public void testThatHeadAndTailAreJoinedByLineBreak() {
+        CharSequence truncated = new ScoringLimits(40, 0, true, 0).truncate(TEXT);
+        assertThat(truncated.toString(), equalTo("The book was good. \n The end was great!"));
+        assertThat(truncated.length(), equalTo(truncated.toString().length()));
+        assertThat(new ScoringLimits(0, 5, true, 0).truncate(TEXT).toString(),
+                equalTo("The book was \n was great!"));
+    }
+
+    public void testThatTokensAreCutBetweenTokens() {
+        TokenText tokens = TokenText.of(Arrays.asList("not good", "at all", "but", "very", "happy"));
+        assertThat(new ScoringLimits(0, 10, false, 0).truncate(tokens), sameInstance(tokens));
+
+        CharSequence prefix = new ScoringLimits(12, 0, false, 0).truncate(tokens);
+        assertThat(prefix, instanceOf(TokenText.class));
+        assertThat(((TokenText) prefix).tokenCount(), equalTo(1));
+        assertThat(prefix.toString(), equalTo("not good"));
+
+        CharSequence headAndTail = new ScoringLimits(0, 3, true, 0).truncate(tokens);
+        assertThat(headAndTail, instanceOf(TokenText.class));
+        assertThat(((TokenText) headAndTail).tokenCount(), equalTo(3));
+        assertThat(headAndTail.toString(), equalTo("not good at all happy"));
+
+        assertThat(new ScoringLimits(5, 0, false, 0).truncate(tokens).length(), equalTo(0));
+    }
+
+    public void testThatTruncatedTokensAreScoredAsTokens() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        TokenText tokens = TokenText.of(Arrays.asList("not good", "at all", "but", "very", "happy"));
+        CharSequence truncated = new ScoringLimits(0, 3, true, 0).truncate(tokens);
+        float[] polarity = new float[4];
+        service.score(truncated, polarity);
+        float[] expected = new float[4];
+        service.score(TokenText.of(Arrays.asList("not good", "at all", "happy")), expected);
+        assertThat(polarity, equalTo(expected));
+    }
+
+    public void testThatTruncatedTextIsScoredLikeACopy() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        CharSequence truncated = new ScoringLimits(40, 0, true, 0).truncate(TEXT);
+        float[] polarity = new float[4];
+        service.score(truncated, polarity);
+        float[] expected = new float[4];
+        service.score(truncated.toString(), expected);
+        assertThat(polarity, equalTo(expected));
+    }
+
+    public void testThatExpiredBudgetScoresFirstChunkOnly() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        StringBuilder document = new StringBuilder();
+        while (document.length() <= VaderSentimentService.SENTENCE_CHUNK_CHARS) {
+            document.append("The book was good. ");
+        }
+        document.append("The book was horrible, awful and bad!");
+        float[] polarity = new float[4];
+        assertFalse(service.scoreWithin(document, System.nanoTime(), polarity));
+        assertThat(polarity[VaderSentimentService.NEGATIVE], equalTo(0.0F));
+
+        assertTrue(service.scoreWithin(document, System.nanoTime() + 60_000_000_000L, polarity));
+        float[] expected = new float[4];
+        service.score(document, expected);
+        assertThat(polarity, equalTo(expected));
+    }
+}
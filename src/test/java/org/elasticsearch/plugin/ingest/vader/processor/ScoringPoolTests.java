@@ -0,0 +1,132 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.plugin.ingest.vader.processor.ScoringPool.SaturationPolicy;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the scoring of documents on the dedicated thread pool by {@link ScoringPool}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class ScoringPoolTests extends ESTestCase {
+
+    public void testThatTasksRunOnThePool() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            ScoringPool pool = new ScoringPool(executor, 2);
+            Thread caller = Thread.currentThread();
+            long result = pool.execute(() -> Thread.currentThread() == caller ? 0 : 42, SaturationPolicy.REJECT);
+            assertThat(result, equalTo(42L));
+            assertThat(pool.getInFlight(), equalTo(0));
+            IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                    () -> pool.execute(() -> {
+                        throw new IllegalArgumentException("field [content] doesn't exist");
+                    }, SaturationPolicy.BLOCK));
+            assertThat(e.getMessage(), equalTo("field [content] doesn't exist"));
+            assertThat(pool.getInFlight(), equalTo(0));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testThatSaturationPolicyApplies() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            ScoringPool pool = new ScoringPool(executor, 1);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<Long> running = callers.submit(() -> pool.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return 1;
+            }, SaturationPolicy.BLOCK));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertThat(pool.getInFlight(), equalTo(1));
+
+            assertThat(pool.execute(() -> 2, SaturationPolicy.SKIP), equalTo(ScoringPool.SATURATED));
+            expectThrows(EsRejectedExecutionException.class, () -> pool.execute(() -> 2, SaturationPolicy.REJECT));
+
+            Future<Long> blocked = callers.submit(() -> pool.execute(() -> 3, SaturationPolicy.BLOCK));
+            assertFalse(blocked.isDone());
+            release.countDown();
+            assertThat(running.get(10, TimeUnit.SECONDS), equalTo(1L));
+            assertThat(blocked.get(10, TimeUnit.SECONDS), equalTo(3L));
+        } finally {
+            terminate(executor, callers);
+        }
+    }
+
+    public void testThatBlockedDocumentsNeverRunOnTheCaller() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            AtomicInteger rejections = new AtomicInteger(3);
+            ExecutorService rejecting = new AbstractExecutorService() {
+                @Override
+                public void execute(Runnable command) {
+                    if (rejections.getAndDecrement() > 0) {
+                        throw new EsRejectedExecutionException("queue is full");
+                    }
+                    executor.execute(command);
+                }
+
+                @Override
+                public void shutdown() {
+                }
+
+                @Override
+                public List<Runnable> shutdownNow() {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                public boolean isShutdown() {
+                    return false;
+                }
+
+                @Override
+                public boolean isTerminated() {
+                    return false;
+                }
+
+                @Override
+                public boolean awaitTermination(long timeout, TimeUnit unit) {
+                    return true;
+                }
+            };
+            ScoringPool pool = new ScoringPool(rejecting, 1);
+            Thread caller = Thread.currentThread();
+            long result = pool.execute(() -> Thread.currentThread() == caller ? 0 : 42, SaturationPolicy.BLOCK);
+            assertThat(result, equalTo(42L));
+            assertThat(rejections.get(), equalTo(-1));
+            assertThat(pool.getInFlight(), equalTo(0));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testThatPolicyIsParsed() {
+        assertThat(SaturationPolicy.parse("skip"), equalTo(SaturationPolicy.SKIP));
+        assertThat(SaturationPolicy.parse("block"), equalTo(SaturationPolicy.BLOCK));
+        expectThrows(IllegalArgumentException.class, () -> SaturationPolicy.parse("drop"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for the {@link SentimentCache} and its {@link TextFingerprint} keys.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class SentimentCacheTests extends ESTestCase {
+
+    public void testThatRepeatedTextIsServedFromCache() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        SentimentCache cache = new SentimentCache(10);
+        float[] polarity = new float[4];
+        cache.score(service, "Great!", polarity);
+        float[] cached = new float[4];
+        cache.score(service, "Great!", cached);
+        assertThat(cached, equalTo(polarity));
+        assertThat(cache.hits(), equalTo(1L));
+        assertThat(cache.misses(), equalTo(1L));
+        assertThat(cache.count(), equalTo(1));
+    }
+
+    public void testThatTokensDoNotShareEntriesWithText() {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        SentimentCache cache = new SentimentCache(10);
+        float[] text = new float[4];
+        cache.score(service, "not good", text);
+        float[] tokens = new float[4];
+        cache.score(service, TokenText.of(Collections.singletonList("not good")), tokens);
+        float[] expected = new float[4];
+        service.score(TokenText.of(Collections.singletonList("not good")), expected);
+        assertThat(tokens, equalTo(expected));
+        assertThat(cache.hits(), equalTo(0L));
+        assertThat(cache.count(), equalTo(2));
+    }
+
+    public void testThatOneOffTextsAreNotAdmittedIntoFullCache() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        SentimentCache cache = new SentimentCache(2);
+        float[] polarity = new float[4];
+        cache.score(service, "Great!", polarity);
+        cache.score(service, "Great!", polarity);
+        cache.score(service, "Awful!", polarity);
+        cache.score(service, "Not bad at all", polarity);
+        assertThat(cache.count(), equalTo(2));
+        assertThat(cache.rejections(), equalTo(1L));
+        cache.score(service, "Not bad at all", polarity);
+        assertThat(cache.evictions(), equalTo(1L));
+    }
+
+    public void testThatConcurrentIncrementsAreCounted() throws Exception {
+        SentimentCache.FrequencySketch sketch = new SentimentCache.FrequencySketch(1 << 20);
+        long[] hashes = new long[10000];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = randomLong();
+        }
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int round = 0; round < 4; round++) {
+                    for (long hash : hashes) {
+                        sketch.increment(hash);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (long hash : hashes) {
+            assertThat(sketch.frequency(hash), equalTo(12));
+        }
+    }
+
+    public void testFingerprint() {
+        // XXH64 of the UTF-16LE bytes of the text
+        assertThat(TextFingerprint.of(""), equalTo(0xEF46DB3751D8E999L));
+        assertThat(TextFingerprint.of("abc"), equalTo(-5768844340890491087L));
+        String text = "I'm a bit of a regular here. I'd like to give it 5 stars.";
+        assertThat(TextFingerprint.of(new StringBuilder(text)), equalTo(TextFingerprint.of(text)));
+        assertThat(TextFingerprint.of("x" + text, 1, text.length() + 1), equalTo(TextFingerprint.of(text)));
+        assertThat(TextFingerprint.of(text), not(equalTo(TextFingerprint.of(text + " "))));
+        assertThat(new SentimentCache.FrequencySketch(16).frequency(TextFingerprint.of(text)), equalTo(0));
+        SentimentCache.FrequencySketch sketch = new SentimentCache.FrequencySketch(16);
+        sketch.increment(TextFingerprint.of(text));
+        assertThat(sketch.frequency(TextFingerprint.of(text)), greaterThan(0));
+    }
+}
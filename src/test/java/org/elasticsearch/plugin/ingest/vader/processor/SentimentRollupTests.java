@@ -0,0 +1,113 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the time buckets and key statistics of a {@link SentimentRollup}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class SentimentRollupTests extends ESTestCase {
+
+    public void testThatDocumentsAreRolledUpByKeyAndTime() {
+        SentimentRollup rollup = new SentimentRollup("brand", 60000, 3, 10);
+        rollup.record("acme", 0.5F, 60000);
+        rollup.record("acme", -0.25F, 119999);
+        rollup.record("globex", 1.0F, 61000);
+        rollup.record("acme", 0.0F, 120000);
+
+        SentimentRollup.KeyStats acme = rollup.getBuckets().get(60000L).get("acme");
+        assertThat(acme.getCount(), equalTo(2L));
+        assertThat(acme.getSum(), equalTo(0.25));
+        assertThat(acme.getMin(), equalTo(-0.25));
+        assertThat(acme.getMax(), equalTo(0.5));
+        assertThat(acme.getHistogram(SentimentRollup.histogramBucket(0.5F)), equalTo(1L));
+        assertThat(acme.getHistogram(SentimentRollup.histogramBucket(-0.25F)), equalTo(1L));
+        assertThat(rollup.getBuckets().get(60000L).get("globex").getCount(), equalTo(1L));
+        assertThat(rollup.getBuckets().get(120000L).get("acme").getCount(), equalTo(1L));
+    }
+
+    public void testThatHistogramCoversCompoundRange() {
+        assertThat(SentimentRollup.histogramBucket(-1.0F), equalTo(0));
+        assertThat(SentimentRollup.histogramBucket(-0.95F), equalTo(0));
+        assertThat(SentimentRollup.histogramBucket(0.0F), equalTo(10));
+        assertThat(SentimentRollup.histogramBucket(1.0F), equalTo(SentimentRollup.HISTOGRAM_BUCKETS - 1));
+    }
+
+    public void testThatOldBucketsAreDropped() {
+        SentimentRollup rollup = new SentimentRollup("brand", 1000, 2, 10);
+        rollup.record("acme", 0.1F, 1000);
+        rollup.record("acme", 0.1F, 2000);
+        rollup.record("acme", 0.1F, 3500);
+        assertThat(rollup.getBuckets().keySet(), equalTo(new HashSet<>(Arrays.asList(2000L, 3000L))));
+    }
+
+    public void testThatExtraKeysAreCountedTogether() {
+        SentimentRollup rollup = new SentimentRollup("user_id", 1000, 1, 2);
+        rollup.record("a", 0.1F, 0);
+        rollup.record("b", 0.1F, 0);
+        rollup.record("c", 0.1F, 0);
+        rollup.record("d", 0.1F, 0);
+        rollup.record("a", 0.1F, 0);
+        assertThat(rollup.getBuckets().get(0L).keySet(),
+                equalTo(new HashSet<>(Arrays.asList("a", "b", SentimentRollup.OTHER_KEY))));
+        assertThat(rollup.getBuckets().get(0L).get("a").getCount(), equalTo(2L));
+        assertThat(rollup.getBuckets().get(0L).get(SentimentRollup.OTHER_KEY).getCount(), equalTo(2L));
+    }
+
+    public void testThatConcurrentRecordsAreCounted() throws InterruptedException {
+        SentimentRollup rollup = new SentimentRollup("brand", Long.MAX_VALUE, 1, 100);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    rollup.record("brand" + (i % 10), 0.5F, 0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long count = 0;
+        for (SentimentRollup.KeyStats stats : rollup.getBuckets().get(0L).values()) {
+            count += stats.getCount();
+        }
+        assertThat(count, equalTo(40000L));
+    }
+
+    public void testThatRollupsOfSeveralNodesAreSummed() throws IOException {
+        SentimentRollup first = new SentimentRollup("brand", 1000, 2, 10);
+        first.record("acme", 0.5F, 1000);
+        first.record("globex", -0.5F, 1000);
+        SentimentRollup second = new SentimentRollup("brand", 1000, 2, 10);
+        second.record("acme", -0.25F, 1500);
+        second.record("acme", 1.0F, 2000);
+        second.record("globex", 0.1F, 2000);
+        BytesStreamOutput out = new BytesStreamOutput();
+        second.copy(Collections.singleton("acme")).writeTo(out);
+
+        SentimentRollup total = first.copy(Collections.<String>emptySet());
+        total.add(new SentimentRollup(out.bytes().streamInput()), Collections.<String>emptySet());
+        assertThat(total.hasSettings("brand", 1000, 2, 10), equalTo(true));
+        SentimentRollup.KeyStats acme = total.getBuckets().get(1000L).get("acme");
+        assertThat(acme.getCount(), equalTo(2L));
+        assertThat(acme.getSum(), equalTo(0.25));
+        assertThat(acme.getMin(), equalTo(-0.25));
+        assertThat(acme.getMax(), equalTo(0.5));
+        assertThat(acme.getHistogram(SentimentRollup.histogramBucket(-0.25F)), equalTo(1L));
+        assertThat(total.getBuckets().get(1000L).get("globex").getCount(), equalTo(1L));
+        assertThat(total.getBuckets().get(2000L).keySet(), equalTo(Collections.singleton("acme")));
+        assertThat(first.getBuckets().get(1000L).get("acme").getCount(), equalTo(1L));
+    }
+}
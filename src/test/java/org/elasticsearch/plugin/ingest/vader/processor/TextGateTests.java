@@ -0,0 +1,60 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for the conditions a text has to meet to be scored, checked by {@link TextGate}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class TextGateTests extends ESTestCase {
+
+    public void testThatNoneAcceptsEveryText() {
+        assertTrue(TextGate.NONE.accepts("https://t.co/abc"));
+        assertTrue(TextGate.NONE.accepts("1234567890"));
+    }
+
+    public void testThatWordsAreCountedOutsideOfLinksMentionsAndTags() {
+        TextGate gate = new TextGate(3, 1.0, false);
+        assertTrue(gate.accepts("The book was good."));
+        assertFalse(gate.accepts("Good book https://t.co/abc"));
+        assertFalse(gate.accepts("@someone @other good"));
+        assertFalse(gate.accepts("<a href=\"https://example.com\">good</a>"));
+        assertTrue(gate.accepts("Such a #fail"));
+        assertFalse(gate.accepts("1234 5678 9012"));
+    }
+
+    public void testThatMarkupOnlyTextsAreSkipped() {
+        TextGate gate = new TextGate(0, 1.0, true);
+        assertFalse(gate.accepts("https://t.co/abc WWW.example.com"));
+        assertFalse(gate.accepts("#travel #sunset #nofilter"));
+        assertFalse(gate.accepts("<p><br/></p>"));
+        assertFalse(gate.accepts("@someone https://t.co/abc"));
+        assertTrue(gate.accepts("@someone loved it https://t.co/abc"));
+        assertTrue(gate.accepts(":)"));
+        assertTrue(gate.accepts("<wow this is great"));
+        assertTrue(gate.accepts("<3 <so good <b>"));
+    }
+
+    public void testThatUnclosedTagsAreText() {
+        TextGate gate = new TextGate(3, 0.5, false);
+        assertTrue(gate.accepts("<wow this is great"));
+        assertTrue(gate.accepts("so <good <b>really</b> good"));
+        assertFalse(gate.accepts("<a href=\"https://example.com/very/long/path\" title=\"good\">ok</a>"));
+        StringBuilder text = new StringBuilder("<p class=\"");
+        while (text.length() < TextGate.MAX_TAG_CHARS) {
+            text.append("very good ");
+        }
+        assertTrue(gate.accepts(text.append("\">")));
+    }
+
+    public void testThatNonLetterRatioIsBounded() {
+        TextGate gate = new TextGate(0, 0.5, false);
+        assertTrue(gate.accepts("The book was good!!!"));
+        assertFalse(gate.accepts("ID 4815162342"));
+        assertFalse(gate.accepts("\ud83d\ude00\ud83d\ude00\ud83d\ude00 ok"));
+        assertFalse(gate.accepts("ok https://t.co/abcdef"));
+    }
+}
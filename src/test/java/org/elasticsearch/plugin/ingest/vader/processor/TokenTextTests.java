@@ -0,0 +1,41 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the text tokenized upstream, {@link TokenText}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class TokenTextTests extends ESTestCase {
+
+    public void testThatTokensReadAsJoinedText() {
+        TokenText text = TokenText.of(Arrays.asList("The", " book ", "", 42, "was", "good."));
+        assertThat(text.tokenCount(), equalTo(4));
+        assertThat(text.toString(), equalTo("The book was good."));
+        assertThat(text.length(), equalTo(18));
+        assertThat(text.charAt(3), equalTo(' '));
+        assertThat(text.charAt(17), equalTo('.'));
+        assertThat(text.charAt(4), equalTo('b'));
+        assertThat(text.tokenAt(8), equalTo(1));
+        assertThat(TextFingerprint.of(text), equalTo(TextFingerprint.of("The book was good.")));
+        expectThrows(IndexOutOfBoundsException.class, () -> text.charAt(18));
+    }
+
+    public void testThatSeparatorSplitsTokens() {
+        TokenText text = TokenText.split("The||book|| ||was||good.||", "||");
+        assertThat(text.tokenCount(), equalTo(4));
+        assertThat(text.toString(), equalTo("The book was good."));
+        assertThat(text.source(1).subSequence(text.start(1), text.end(1)).toString(), equalTo("book"));
+
+        assertThat(TokenText.split("||||", "||").length(), equalTo(0));
+        assertThat(TokenText.of(Arrays.asList(" ", null)).length(), equalTo(0));
+        assertThat(TokenText.split("good", "good, bad").toString(), equalTo("good"));
+    }
+}
@@ -0,0 +1,104 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests for the shared {@link VaderLexicon}.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class VaderLexiconTests extends ESTestCase {
+
+    public void testLookupIsCaseInsensitiveAndUsesOffsets() throws IOException {
+        VaderLexicon lexicon = VaderLexicon.read(new BufferedReader(new StringReader(
+                "good\t1.9\t0.9434\t[2, 1, 2]\n" +
+                        "horrible\t-2.5\t0.6708\t[-3, -2, -2]\n" +
+                        ":)\t2.0\t1.18322\t[2, 2, 1]\n")));
+        assertThat(lexicon.size(), equalTo(3));
+
+        String text = "A GOOD, horrible book :)";
+        int good = lexicon.find(text, 2, 6);
+        assertThat(good, greaterThanOrEqualTo(0));
+        assertThat(lexicon.valence(good), equalTo(1.9F));
+        assertThat(lexicon.valence(lexicon.find(text, 8, 16)), equalTo(-2.5F));
+        assertThat(lexicon.valence(lexicon.find(text, 22, 24)), equalTo(2.0F));
+        assertThat(lexicon.find(text, 17, 21), lessThan(0));
+        assertThat(lexicon.find(text, 2, 5), lessThan(0));
+    }
+
+    public void testThatDefaultLexiconIsLoaded() throws IOException {
+        VaderLexicon lexicon = VaderLexicon.loadDefault();
+        assertThat(lexicon.size(), greaterThan(7000));
+        assertThat(lexicon.find("good", 0, 4), greaterThanOrEqualTo(0));
+    }
+
+    public void testBoosterAndNegationWords() {
+        assertThat(VaderLexicon.BOOSTERS.value(VaderLexicon.BOOSTERS.find("Very", 0, 4, true)),
+                equalTo(VaderLexicon.B_INCR));
+        assertThat(VaderLexicon.BOOSTERS.value(VaderLexicon.BOOSTERS.find("kind of", 0, 7, false)),
+                equalTo(VaderLexicon.B_DECR));
+        assertThat(VaderLexicon.NEGATIONS.find("isn't", 0, 5, false), greaterThanOrEqualTo(0));
+        assertThat(VaderLexicon.NEGATIONS.find("NOT", 0, 3, false), lessThan(0));
+    }
+
+    public void testThatOverlayIsMergedIntoCopy() throws IOException {
+        VaderLexicon lexicon = VaderLexicon.read(new BufferedReader(new StringReader("good\t1.9\nbad\t-2.5\n")));
+        VaderLexicon overlay = lexicon.withOverlay(new BufferedReader(new StringReader("GG\t2.5\nbad\t-0.5\n")));
+        assertThat(overlay.size(), equalTo(3));
+        assertThat(overlay.valence(overlay.find("gg", 0, 2)), equalTo(2.5F));
+        assertThat(overlay.valence(overlay.find("Bad", 0, 3)), equalTo(-0.5F));
+        assertThat(overlay.valence(overlay.find("good", 0, 4)), equalTo(1.9F));
+        assertThat(lexicon.valence(lexicon.find("bad", 0, 3)), equalTo(-2.5F));
+        assertThat(lexicon.find("gg", 0, 2), lessThan(0));
+        assertThat(overlay.getId(), not(equalTo(lexicon.getId())));
+    }
+
+    public void testThatOverlaysAreReloadedFromDirectory() throws IOException {
+        VaderSentimentService service = new VaderSentimentService().start();
+        Path directory = createTempDir();
+        Files.write(directory.resolve("gaming.txt"), Collections.singletonList("gg\t2.5"), StandardCharsets.UTF_8);
+        Files.write(directory.resolve("notes.md"), Collections.singletonList("not a lexicon"), StandardCharsets.UTF_8);
+        service.loadOverlays(directory);
+        assertThat(service.getOverlayNames(), equalTo(Collections.singleton("gaming")));
+        VaderLexicon gaming = service.getLexicon("gaming");
+        assertThat(gaming.valence(gaming.find("gg", 0, 2)), equalTo(2.5F));
+
+        float[] polarity = new float[4];
+        service.score(gaming, "gg", polarity);
+        assertThat(polarity[VaderSentimentService.COMPOUND], greaterThan(0.0F));
+
+        Files.write(directory.resolve("gaming.txt"), Collections.singletonList("gg\tnot a number"),
+                StandardCharsets.UTF_8);
+        service.loadOverlays(directory);
+        assertThat(service.getLexicon("gaming"), sameInstance(gaming));
+
+        Files.delete(directory.resolve("gaming.txt"));
+        service.loadOverlays(directory);
+        assertThat(service.getOverlayNames(), equalTo(Collections.emptySet()));
+        assertThat(service.getLexicon("gaming"), sameInstance(gaming));
+        expectThrows(IllegalArgumentException.class, () -> service.getLexicon("retail"));
+        assertThat(service.getLexicon(null), sameInstance(service.getLexicon()));
+
+        Files.write(directory.resolve("gaming.txt"), Collections.singletonList("gg\t3.0"), StandardCharsets.UTF_8);
+        service.loadOverlays(directory);
+        VaderLexicon recreated = service.getLexicon("gaming");
+        assertThat(recreated.valence(recreated.find("gg", 0, 2)), equalTo(3.0F));
+    }
+}
@@ -0,0 +1,344 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.test.rest.ESRestTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * Load test of the {@code vader_analyzer} processor on a running cluster with the plugin installed, the cluster
+ * of {@link VaderRestIT}:
+ * <pre>
+ * mvn test -Dtest=VaderLoadIT -Dtests.rest.cluster=localhost:9200
+ * </pre>
+ * At every level of concurrency, as many clients send {@code _bulk} requests of generated tweets, reviews and
+ * support threads through a pipeline scoring them. Meanwhile, the pipeline is replaced and the statistics of the
+ * processor are read over and over, and a few documents lack the scored field so that they fail. The throughput,
+ * the percentiles of the bulk latency and the growth of the heap of the nodes are written, for every level, to a
+ * JSON report that can be compared from one build to the next.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code tests.vader.load.concurrency}: comma separated numbers of clients, {@code 1,4,16} by default</li>
+ * <li>{@code tests.vader.load.bulks}: number of bulk requests sent by every client, 20 by default</li>
+ * <li>{@code tests.vader.load.bulk_size}: number of documents of a bulk request, 100 by default</li>
+ * <li>{@code tests.vader.load.report}: path of the report, {@code target/vader-load-report.json} by default</li>
+ * <li>{@code tests.vader.load.min_docs_per_second}: throughput that the best level must reach, none by default</li>
+ * </ul>
+ *
+ * @author Animesh Pandey
+ */
+public class VaderLoadIT extends ESRestTestCase {
+    private static final String PIPELINE = "vader-load";
+    private static final String INDEX = "vader-load";
+    private static final String TAG = "load";
+
+    /**
+     * Interval between two operations of the chaos thread.
+     */
+    private static final long CHAOS_INTERVAL_MILLIS = 100;
+
+    private static final String[] OPENERS = {"Just tried the new place downtown.", "Ordered a replacement last week.",
+            "Finally watched it.", "Update on my ticket:", "Third time calling support today.", "Honestly?",
+            "My flight got moved again.", "The app updated overnight."};
+    private static final String[] SENTIMENTS = {"The food was really good", "Service was NOT great",
+            "I love it", "Absolutely horrible experience", "It's kind of okay I guess", "not bad at all",
+            "The staff were friendly but slow", "Never so happy with a purchase", "worst support ever",
+            "This is the bomb", "At least it isn't broken", "I am very very disappointed", "Nothing special",
+            "Totally worth the money", "Pretty sad about the delay", "The agent was helpful and kind"};
+    private static final String[] ENDINGS = {".", "!", "!!!", "?", "...", " :)", " :(", " \uD83D\uDE00",
+            " \uD83D\uDE21", " #fail", " #love", " http://t.co/x1y2", " lol"};
+
+    public void testThroughputUnderConcurrentLoad() throws Exception {
+        int[] concurrencies = concurrencyLevels();
+        int bulks = Integer.getInteger("tests.vader.load.bulks", 20);
+        int bulkSize = Integer.getInteger("tests.vader.load.bulk_size", 100);
+        Path reportPath = Paths.get(System.getProperty("tests.vader.load.report", "target/vader-load-report.json"));
+        double minDocsPerSecond = Double.parseDouble(System.getProperty("tests.vader.load.min_docs_per_second",
+                "0"));
+
+        createIndex();
+        putPipeline(0);
+        List<Map<String, Object>> levels = new ArrayList<>();
+        for (int concurrency : concurrencies) {
+            levels.add(runLevel(concurrency, bulks, bulkSize));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("bulks_per_client", bulks);
+        report.put("bulk_size", bulkSize);
+        report.put("levels", levels);
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        Files.write(reportPath, XContentFactory.jsonBuilder().map(report).string().getBytes(StandardCharsets.UTF_8));
+
+        double best = 0;
+        for (Map<String, Object> level : levels) {
+            assertThat(level.toString(), level.get("failed"), equalTo(level.get("expected_failures")));
+            assertThat(level.toString(), level.get("chaos_errors"), equalTo(0));
+            double docsPerSecond = (Double) level.get("docs_per_second");
+            assertThat(level.toString(), docsPerSecond, greaterThan(0.0));
+            best = Math.max(best, docsPerSecond);
+        }
+        assertThat("best throughput in " + reportPath, best, greaterThanOrEqualTo(minDocsPerSecond));
+    }
+
+    /**
+     * Sends {@code bulks} bulk requests from each of {@code concurrency} clients, while the chaos thread runs.
+     *
+     * @return the measures of the level
+     */
+    private Map<String, Object> runLevel(int concurrency, int bulks, int bulkSize) throws Exception {
+        // documents are generated beforehand, on the test thread, which owns the randomness of the test
+        List<List<String>> bodies = new ArrayList<>(concurrency);
+        int expectedFailures = 0;
+        long documents = 0;
+        for (int client = 0; client < concurrency; client++) {
+            List<String> clientBodies = new ArrayList<>(bulks);
+            for (int i = 0; i < bulks; i++) {
+                StringBuilder body = new StringBuilder();
+                for (int d = 0; d < bulkSize; d++) {
+                    body.append("{\"index\":{\"_index\":\"" + INDEX + "\",\"_type\":\"doc\"}}\n");
+                    XContentBuilder source = XContentFactory.jsonBuilder().startObject();
+                    int kind = randomIntBetween(0, 99);
+                    if (kind == 0) {
+                        // fails, the processor does not ignore missing fields
+                        source.field("title", "no content");
+                        expectedFailures++;
+                    } else if (kind == 1) {
+                        // left unscored, the field holds no text
+                        source.field("content", randomIntBetween(0, 5));
+                    } else {
+                        source.field("content", text(kind));
+                    }
+                    body.append(source.endObject().string()).append('\n');
+                    documents++;
+                }
+                clientBodies.add(body.toString());
+            }
+            bodies.add(clientBodies);
+        }
+
+        long heapBefore = heapUsed();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency + 1);
+        try {
+            Future<int[]> chaos = executor.submit(() -> chaos(running));
+            List<Future<long[]>> clients = new ArrayList<>(concurrency);
+            long start = System.nanoTime();
+            for (List<String> clientBodies : bodies) {
+                clients.add(executor.submit(() -> send(clientBodies)));
+            }
+            long[] latencies = new long[concurrency * bulks];
+            int failed = 0;
+            for (int client = 0; client < concurrency; client++) {
+                long[] result = clients.get(client).get();
+                System.arraycopy(result, 0, latencies, client * bulks, bulks);
+                failed += (int) result[bulks];
+            }
+            long elapsed = System.nanoTime() - start;
+            running.set(false);
+            int[] chaosCounts = chaos.get();
+
+            Arrays.sort(latencies);
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50", percentile(latencies, 0.50));
+            latency.put("p90", percentile(latencies, 0.90));
+            latency.put("p99", percentile(latencies, 0.99));
+            latency.put("max", percentile(latencies, 1.0));
+            long heapAfter = heapUsed();
+
+            Map<String, Object> level = new LinkedHashMap<>();
+            level.put("concurrency", concurrency);
+            level.put("documents", documents);
+            level.put("failed", failed);
+            level.put("expected_failures", expectedFailures);
+            level.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+            level.put("docs_per_second", (documents - failed) / (elapsed / 1e9));
+            level.put("bulk_latency_ms", latency);
+            level.put("heap_used_before_bytes", heapBefore);
+            level.put("heap_used_after_bytes", heapAfter);
+            level.put("heap_growth_bytes", heapAfter - heapBefore);
+            level.put("pipeline_updates", chaosCounts[0]);
+            level.put("stats_reads", chaosCounts[1]);
+            level.put("chaos_errors", chaosCounts[2]);
+            level.put("processor_stats", get("/_vader/stats/" + TAG));
+            return level;
+        } finally {
+            running.set(false);
+            terminate(executor);
+        }
+    }
+
+    /**
+     * Sends the bulk requests of a client one after the other.
+     *
+     * @return the latency of every request in nanoseconds, followed by the number of documents that failed
+     */
+    private static long[] send(List<String> bodies) throws IOException {
+        long[] result = new long[bodies.size() + 1];
+        for (int i = 0; i < bodies.size(); i++) {
+            long start = System.nanoTime();
+            Map<String, Object> response = performRequest("POST", "/_bulk",
+                    Collections.singletonMap("pipeline", PIPELINE), bodies.get(i));
+            result[i] = System.nanoTime() - start;
+            if (Boolean.TRUE.equals(response.get("errors"))) {
+                for (Object item : (List<?>) response.get("items")) {
+                    Map<?, ?> index = (Map<?, ?>) ((Map<?, ?>) item).get("index");
+                    if (index.get("error") != null) {
+                        result[bodies.size()]++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the pipeline and reads the statistics of the processor, in turns, until the level ends.
+     *
+     * @return the number of pipeline updates, of statistics reads and of operations that failed
+     */
+    private static int[] chaos(AtomicBoolean running) throws InterruptedException {
+        int[] counts = new int[3];
+        while (running.get()) {
+            try {
+                if (counts[0] <= counts[1]) {
+                    // the processors of the pipeline are created again, with or without a cache
+                    putPipeline(counts[0] % 2 == 0 ? 1000 : 0);
+                    counts[0]++;
+                } else {
+                    get("/_vader/stats");
+                    counts[1]++;
+                }
+            } catch (IOException e) {
+                counts[2]++;
+            }
+            Thread.sleep(CHAOS_INTERVAL_MILLIS);
+        }
+        return counts;
+    }
+
+    /**
+     * @param kind random number between 2 and 99 choosing the kind of text
+     * @return a tweet, a review or, more rarely, a long support thread
+     */
+    private static String text(int kind) {
+        int sentences;
+        if (kind < 60) {
+            sentences = randomIntBetween(1, 2);
+        } else if (kind < 92) {
+            sentences = randomIntBetween(3, 8);
+        } else {
+            sentences = randomIntBetween(10, 40);
+        }
+        StringBuilder text = new StringBuilder(randomFrom(OPENERS));
+        for (int i = 0; i < sentences; i++) {
+            text.append(kind >= 92 ? '\n' : ' ').append(randomFrom(SENTIMENTS)).append(randomFrom(ENDINGS));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Creates the index with {@code content} mapped as text, so that the documents holding a number in it can not
+     * have dynamic mapping map it as a number and reject the texts that follow.
+     */
+    private static void createIndex() throws IOException {
+        XContentBuilder index = XContentFactory.jsonBuilder().startObject()
+                .startObject("mappings").startObject("doc").startObject("properties")
+                .startObject("content").field("type", "text").endObject()
+                .startObject("polarity").startObject("properties");
+        for (String score : new String[]{"compound", "positive", "negative", "neutral"}) {
+            index.startObject(score).field("type", "float").endObject();
+        }
+        String body = index.endObject().endObject()
+                .endObject().endObject().endObject()
+                .endObject().string();
+        performRequest("PUT", "/" + INDEX, Collections.emptyMap(), body);
+    }
+
+    private static void putPipeline(int cacheSize) throws IOException {
+        String pipeline = XContentFactory.jsonBuilder().startObject()
+                .field("description", "load test of the vader_analyzer processor")
+                .startArray("processors")
+                .startObject().startObject(VaderProcessor.TYPE)
+                .field("tag", TAG)
+                .field("input_field", "content")
+                .field("target_field", "polarity")
+                .field("cache_size", cacheSize)
+                .endObject().endObject()
+                .endArray()
+                .endObject().string();
+        performRequest("PUT", "/_ingest/pipeline/" + PIPELINE, Collections.emptyMap(), pipeline);
+    }
+
+    /**
+     * @return the heap used by all the nodes of the cluster
+     */
+    private static long heapUsed() throws IOException {
+        long heapUsed = 0;
+        Map<?, ?> nodes = (Map<?, ?>) get("/_nodes/stats/jvm").get("nodes");
+        for (Object node : nodes.values()) {
+            Map<?, ?> mem = (Map<?, ?>) ((Map<?, ?>) ((Map<?, ?>) node).get("jvm")).get("mem");
+            heapUsed += ((Number) mem.get("heap_used_in_bytes")).longValue();
+        }
+        return heapUsed;
+    }
+
+    private static Map<String, Object> get(String endpoint) throws IOException {
+        return performRequest("GET", endpoint, Collections.emptyMap(), null);
+    }
+
+    private static Map<String, Object> performRequest(String method, String endpoint, Map<String, String> params,
+                                                      String body) throws IOException {
+        HttpEntity entity = body == null ? null : new NStringEntity(body, ContentType.APPLICATION_JSON);
+        Response response = client().performRequest(method, endpoint, params, entity);
+        return XContentHelper.convertToMap(new BytesArray(EntityUtils.toString(response.getEntity())), false).v2();
+    }
+
+    /**
+     * @return the latency below which the given share of the sorted latencies are, in milliseconds
+     */
+    private static double percentile(long[] sortedLatencies, double share) {
+        int index = (int) Math.ceil(share * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+
+    private static int[] concurrencyLevels() {
+        String[] values = System.getProperty("tests.vader.load.concurrency", "1,4,16").split(",");
+        int[] levels = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            levels[i] = Integer.parseInt(values[i].trim());
+        }
+        return levels;
+    }
+}
@@ -1,6 +1,7 @@
 package org.elasticsearch.plugin.ingest.vader.processor;
 
 import com.vader.sentiment.util.ScoreType;
+import org.elasticsearch.ElasticsearchException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -8,8 +9,14 @@ import org.elasticsearch.ingest.IngestDocument;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.elasticsearch.test.ESTestCase.random;
 import static org.elasticsearch.ingest.RandomDocumentPicks.randomIngestDocument;
@@ -30,7 +37,7 @@ public class VaderProcessorTests {
 
     @Before
     public void setUp() {
-        vaderSentimentService = new VaderSentimentService();
+        vaderSentimentService = new VaderSentimentService().start();
     }
 
     /**
@@ -111,6 +118,535 @@ public class VaderProcessorTests {
                 getValidIngestDocumentWithExistingTargetField());
     }
 
+    /**
+     * Tests if scored, skipped and failed documents are counted by processor tag.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testStatsArePerProcessorTag() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        VaderProcessor vaderProcessor = new VaderProcessor(vaderSentimentService, tag, SOURCE_FIELD, TARGET_FIELD,
+                false);
+        VaderProcessor sameTag = new VaderProcessor(vaderSentimentService, tag, SOURCE_FIELD, TARGET_FIELD, false);
+        Assert.assertSame(vaderProcessor.getStats(), sameTag.getStats());
+
+        IngestDocument document = getIngestDocument("The book was good.", SOURCE_FIELD);
+        vaderProcessor.execute(document);
+        sameTag.execute(getEmptyValidIngestDocument());
+        try {
+            vaderProcessor.execute(document);
+            Assert.fail("the target field already exists");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        ProcessorStats stats = vaderSentimentService.getStats().get(tag);
+        Assert.assertEquals(1L, stats.getScored());
+        Assert.assertEquals(1L, stats.getSkipped());
+        Assert.assertEquals(1L, stats.getFailed());
+        Assert.assertEquals("The book was good.".length(), stats.getCharacters());
+    }
+
+    /**
+     * Tests if processors configured with the same cache size share the node-level cache.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testFactoryWithCacheSize() throws Exception {
+        VaderProcessor.Factory factory = new VaderProcessor.Factory(vaderSentimentService);
+        VaderProcessor first = factory.create(null, randomAsciiOfLength(10), getConfig("cache_size", 100));
+        VaderProcessor second = factory.create(null, randomAsciiOfLength(10), getConfig("cache_size", 100));
+        VaderProcessor uncached = factory.create(null, randomAsciiOfLength(10), getConfig("cache_size", 0));
+        Assert.assertSame(first.getCache(), second.getCache());
+        Assert.assertEquals(100, first.getCache().getMaxEntries());
+        Assert.assertNull(uncached.getCache());
+
+        Map<String, Object> entityData = getIngestDocumentData(first, getValidIngestDocument());
+        Map<String, Object> cachedData = getIngestDocumentData(second, getValidIngestDocument());
+        Assert.assertEquals(entityData, cachedData);
+        Assert.assertEquals(1L, first.getCache().hits());
+    }
+
+    /**
+     * Tests if several fields, including every element of an array, are scored by one processor.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMultipleInputFieldsWithWildcard() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_fields", Arrays.asList("title", "comments.*.text"));
+        config.put("target_field", TARGET_FIELD);
+        config.put("aggregate_field", "overall");
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService)
+                .create(null, randomAsciiOfLength(10), config);
+
+        Map<String, Object> document = new HashMap<>();
+        document.put("title", "The book was good.");
+        List<Object> comments = new ArrayList<>();
+        comments.add(new HashMap<>(Collections.singletonMap("text", "A really bad, horrible book.")));
+        comments.add(new HashMap<>(Collections.singletonMap("user", "nobody")));
+        document.put("comments", comments);
+        IngestDocument ingestDocument = randomIngestDocument(random(), document);
+        vaderProcessor.execute(ingestDocument);
+
+        Assert.assertEquals(0.4404F,
+                ingestDocument.getFieldValue(TARGET_FIELD + ".title." + ScoreType.COMPOUND, Float.class), 0.0F);
+        Assert.assertEquals(-0.8211F,
+                ingestDocument.getFieldValue("comments.0." + TARGET_FIELD + ".text." + ScoreType.COMPOUND, Float.class),
+                0.0F);
+        Assert.assertFalse(ingestDocument.hasField("comments.1." + TARGET_FIELD));
+        Assert.assertEquals((0.4404F * 18 - 0.8211F * 28) / 46,
+                ingestDocument.getFieldValue("overall." + ScoreType.COMPOUND, Float.class), 0.0001F);
+    }
+
+    /**
+     * Tests if exception is thrown when a field of {@code input_fields} is missing from the document.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultipleInputFieldsWithMissingField() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_fields", Arrays.asList(SOURCE_FIELD, "other_field"));
+        config.put("target_field", TARGET_FIELD);
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService)
+                .create(null, randomAsciiOfLength(10), config);
+        vaderProcessor.execute(getValidIngestDocument());
+    }
+
+    /**
+     * Tests if a field of {@code input_fields} missing after a matched one leaves the document unchanged.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test
+    public void testMultipleInputFieldsWithMissingFieldLeaveDocumentUnchanged() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_fields", Arrays.asList("title", "comments.*.text", "other_field"));
+        config.put("target_field", TARGET_FIELD);
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService)
+                .create(null, randomAsciiOfLength(10), config);
+
+        Map<String, Object> document = new HashMap<>();
+        document.put("title", "The book was good.");
+        document.put("comments", Collections.singletonList(
+                new HashMap<>(Collections.singletonMap("text", "A really bad, horrible book."))));
+        IngestDocument ingestDocument = randomIngestDocument(random(), document);
+        try {
+            vaderProcessor.execute(ingestDocument);
+            Assert.fail("[other_field] is missing");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("field [other_field] doesn't exist", e.getMessage());
+        }
+        Assert.assertFalse(ingestDocument.hasField(TARGET_FIELD));
+        Assert.assertFalse(ingestDocument.hasField("comments.0." + TARGET_FIELD));
+    }
+
+    /**
+     * Tests if the factory rejects both {@code input_field} and {@code input_fields}.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithInputFieldAndInputFields() throws Exception {
+        Map<String, Object> config = getConfig("input_fields", Collections.singletonList("title"));
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    /**
+     * Tests if a text longer than {@code max_chars} is scored on its prefix and flagged as truncated.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testFactoryWithMaxChars() throws Exception {
+        VaderProcessor.Factory factory = new VaderProcessor.Factory(vaderSentimentService);
+        VaderProcessor vaderProcessor = factory.create(null, randomAsciiOfLength(10), getConfig("max_chars", 20));
+        Assert.assertEquals(20, vaderProcessor.getLimits().getMaxChars());
+        Assert.assertFalse(vaderProcessor.getLimits().isHeadAndTail());
+
+        Map<String, Object> entityData = getIngestDocumentData(vaderProcessor, getValidIngestDocument());
+        Assert.assertEquals(Boolean.TRUE, entityData.get(VaderProcessor.TRUNCATED));
+        Map<String, Object> shortData = getIngestDocumentData(vaderProcessor,
+                getIngestDocument("The book was good.", SOURCE_FIELD));
+        Assert.assertFalse(shortData.containsKey(VaderProcessor.TRUNCATED));
+    }
+
+    /**
+     * Tests if the factory rejects an unknown {@code truncate_mode}.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithUnknownTruncateMode() throws Exception {
+        Map<String, Object> config = getConfig("truncate_mode", "middle");
+        config.put("max_chars", 100);
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    /**
+     * Tests if the compound, flat and label output formats write their values without a polarity map.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testFactoryWithOutputFormat() throws Exception {
+        VaderProcessor.Factory factory = new VaderProcessor.Factory(vaderSentimentService);
+        IngestDocument document = getIngestDocument("The book was good.", SOURCE_FIELD);
+        factory.create(null, randomAsciiOfLength(10), getConfig("output_format", "compound")).execute(document);
+        Assert.assertEquals(0.4404F, document.getFieldValue(TARGET_FIELD, Float.class), 0.0F);
+
+        document = getIngestDocument("The book was good.", SOURCE_FIELD);
+        factory.create(null, randomAsciiOfLength(10), getConfig("output_format", "flat")).execute(document);
+        Assert.assertEquals(0.4404F, document.getFieldValue(TARGET_FIELD + "_" + ScoreType.COMPOUND, Float.class),
+                0.0F);
+        Assert.assertEquals(0.508F, document.getFieldValue(TARGET_FIELD + "_" + ScoreType.POSITIVE, Float.class),
+                0.0F);
+        Assert.assertFalse(document.hasField(TARGET_FIELD));
+
+        document = getIngestDocument("The book was good.", SOURCE_FIELD);
+        factory.create(null, randomAsciiOfLength(10), getConfig("output_format", "label")).execute(document);
+        Assert.assertEquals(OutputFormat.POSITIVE, document.getFieldValue(TARGET_FIELD, String.class));
+
+        Map<String, Object> config = getConfig("output_format", "label");
+        config.put("positive_threshold", 0.5);
+        document = getIngestDocument("The book was good.", SOURCE_FIELD);
+        factory.create(null, randomAsciiOfLength(10), config).execute(document);
+        Assert.assertEquals(OutputFormat.NEUTRAL, document.getFieldValue(TARGET_FIELD, String.class));
+    }
+
+    /**
+     * Tests if the factory rejects thresholds with an output format other than {@code label}.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithThresholdWithoutLabel() throws Exception {
+        Map<String, Object> config = getConfig("output_format", "compound");
+        config.put("negative_threshold", -0.5);
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    /**
+     * Tests if the factory rejects a lexicon that was not loaded.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithUnknownLexicon() throws Exception {
+        Map<String, Object> config = getConfig("lexicon", "gaming");
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    /**
+     * Tests if the compound polarity of the documents is rolled up by the value of the rollup field.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testFactoryWithRollupField() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        Map<String, Object> config = getConfig("rollup_field", "brand");
+        config.put("rollup_interval", "1h");
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null, tag, config);
+        Assert.assertSame(vaderProcessor.getRollup(), vaderSentimentService.getRollups().get(tag));
+        Assert.assertEquals(3600000L, vaderProcessor.getRollup().getIntervalMillis());
+
+        for (String brand : Arrays.asList("acme", "acme", null)) {
+            Map<String, Object> document = new HashMap<>();
+            document.put(SOURCE_FIELD, "The book was good.");
+            if (brand != null) {
+                document.put("brand", brand);
+            }
+            vaderProcessor.execute(new IngestDocument("index", "type", "id", null, null, null, null, document));
+        }
+        long count = 0;
+        double sum = 0;
+        for (Map<String, SentimentRollup.KeyStats> bucket : vaderProcessor.getRollup().getBuckets().values()) {
+            Assert.assertEquals(Collections.singleton("acme"), bucket.keySet());
+            count += bucket.get("acme").getCount();
+            sum += bucket.get("acme").getSum();
+        }
+        Assert.assertEquals(2L, count);
+        Assert.assertEquals(2 * 0.4404, sum, 0.0001);
+
+        config = getConfig("rollup_field", "brand");
+        config.put("rollup_interval", "60m");
+        VaderProcessor sameSettings = new VaderProcessor.Factory(vaderSentimentService).create(null, tag, config);
+        Assert.assertSame(vaderProcessor.getRollup(), sameSettings.getRollup());
+        try {
+            new VaderProcessor.Factory(vaderSentimentService).create(null, tag, getConfig("rollup_field", "user_id"));
+            Assert.fail("processors sharing a tag have to share the settings of its rollup");
+        } catch (ElasticsearchException e) {
+            // expected
+        }
+        Assert.assertSame(vaderProcessor.getRollup(), vaderSentimentService.getRollups().get(tag));
+        Assert.assertNull(new VaderProcessor.Factory(vaderSentimentService)
+                .create(null, randomAsciiOfLength(10), getConfig("cache_size", 0)).getRollup());
+
+        vaderSentimentService.retainRollups(Collections.emptySet());
+        Assert.assertNull(vaderSentimentService.getRollups().get(tag));
+    }
+
+    /**
+     * Tests if the factory rejects a rollup of a processor without a tag, which could not be told apart.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithRollupFieldWithoutTag() throws Exception {
+        new VaderProcessor.Factory(vaderSentimentService).create(null, null, getConfig("rollup_field", "brand"));
+    }
+
+    /**
+     * Tests if the factory rejects a rollup interval that is not a time value.
+     *
+     * @throws Exception is an other error occurs.
+     */
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithInvalidRollupInterval() throws Exception {
+        Map<String, Object> config = getConfig("rollup_field", "brand");
+        config.put("rollup_interval", "often");
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    /**
+     * Tests if a text with the fingerprint of the previous run keeps its polarity, and if a changed text is scored again.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFactoryWithFingerprintField() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService)
+                .create(null, tag, getConfig("fingerprint_field", "fingerprint"));
+        Map<String, Object> source = new HashMap<>();
+        source.put(SOURCE_FIELD, "The book was good.");
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        String fingerprint = document.getFieldValue("fingerprint", String.class);
+        Assert.assertEquals(TextFingerprint.toHex(TextFingerprint.of("The book was good.")), fingerprint);
+
+        document.setFieldValue(TARGET_FIELD, "kept");
+        document.setFieldValue(SOURCE_FIELD, " The book was good. ");
+        vaderProcessor.execute(document);
+        Assert.assertEquals("kept", document.getFieldValue(TARGET_FIELD, Object.class));
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getUnchanged());
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getSkipped());
+
+        document.setFieldValue(SOURCE_FIELD, "A really bad, horrible book.");
+        vaderProcessor.execute(document);
+        Assert.assertEquals(-0.8211F, ((Map<String, Float>) document.getFieldValue(TARGET_FIELD, Object.class))
+                .get(ScoreType.COMPOUND), 0.0F);
+        Assert.assertNotEquals(fingerprint, document.getFieldValue("fingerprint", String.class));
+
+        document.removeField("fingerprint");
+        try {
+            vaderProcessor.execute(document);
+            Assert.fail("the target field already exists without a fingerprint");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFactoryWithEnglishOnly() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        Map<String, Object> config = getConfig("english_only", true);
+        config.put("language_field", "language");
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null, tag, config);
+        Assert.assertTrue(vaderProcessor.getLanguageFilter().isEnglishOnly());
+
+        Map<String, Object> source = new HashMap<>();
+        source.put(SOURCE_FIELD, "Das Essen war nicht gut und der Service ist auch sehr langsam.");
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertFalse(document.hasField(TARGET_FIELD));
+        Assert.assertEquals("latin", document.getFieldValue("language", String.class));
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getNonEnglish());
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getSkipped());
+
+        source = new HashMap<>();
+        source.put(SOURCE_FIELD, "The book was good.");
+        document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertTrue(document.hasField(TARGET_FIELD));
+        Assert.assertEquals("english", document.getFieldValue("language", String.class));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithLanguageFieldAndInputFields() throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_fields", Collections.singletonList(SOURCE_FIELD));
+        config.put("target_field", TARGET_FIELD);
+        config.put("language_field", "language");
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    @Test
+    public void testFactoryWithMinWords() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        Map<String, Object> config = getConfig("min_words", 2);
+        config.put("skip_markup_only", true);
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null, tag, config);
+        Assert.assertEquals(2, vaderProcessor.getGate().getMinWords());
+        Assert.assertTrue(vaderProcessor.getGate().isSkipMarkupOnly());
+
+        Map<String, Object> source = new HashMap<>();
+        source.put(SOURCE_FIELD, "Great! https://t.co/abc");
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertFalse(document.hasField(TARGET_FIELD));
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getGated());
+        Assert.assertEquals(1L, vaderSentimentService.getStats(tag).getSkipped());
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithInvalidNonLetterRatio() throws Exception {
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10),
+                getConfig("max_non_letter_ratio", 1.5));
+    }
+
+    @Test
+    public void testFactoryWithDedicatedThreadPool() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        Map<String, Object> config = getConfig("dedicated_thread_pool", true);
+        config.put("on_saturation", "skip");
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null, tag, config);
+        Assert.assertEquals(ScoringPool.SaturationPolicy.SKIP, vaderProcessor.getSaturationPolicy());
+
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            service.setScoringPool(new ScoringPool(executor, 1));
+            vaderProcessor = new VaderProcessor.Factory(service).create(null, tag,
+                    getConfig("dedicated_thread_pool", true));
+            Map<String, Object> source = new HashMap<>();
+            source.put(SOURCE_FIELD, "The book was good.");
+            IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+            vaderProcessor.execute(document);
+            Assert.assertEquals(0.4404F, ((Map<String, Float>) document.getFieldValue(TARGET_FIELD, Object.class))
+                    .get(ScoreType.COMPOUND), 0.0F);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests if the time a document waits for a thread of the dedicated pool does not count against its time budget.
+     *
+     * @throws Exception is an error occurs.
+     */
+    @Test
+    public void testThatQueueTimeIsNotPartOfTheTimeBudget() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            vaderSentimentService.setScoringPool(new ScoringPool(executor, 2));
+            Map<String, Object> config = getConfig("dedicated_thread_pool", true);
+            config.put("time_budget", "200ms");
+            VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService)
+                    .create(null, randomAsciiOfLength(10), config);
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 3 * VaderSentimentService.SENTENCE_CHUNK_CHARS) {
+                text.append("The book was good. ");
+            }
+            Map<String, Object> entityData = getIngestDocumentData(vaderProcessor,
+                    getIngestDocument(text.toString().trim(), SOURCE_FIELD));
+            Assert.assertFalse(entityData.containsKey(VaderProcessor.TRUNCATED));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithSaturationPolicyWithoutDedicatedThreadPool() throws Exception {
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10),
+                getConfig("on_saturation", "reject"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testThatTokensAreScored() throws Exception {
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null,
+                randomAsciiOfLength(10), getConfig("token_separator", "|"));
+        Assert.assertEquals("|", vaderProcessor.getTokenSeparator());
+
+        Map<String, Object> source = new HashMap<>();
+        source.put(SOURCE_FIELD, "The|book|was|good.");
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertEquals(0.4404F, ((Map<String, Float>) document.getFieldValue(TARGET_FIELD, Object.class))
+                .get(ScoreType.COMPOUND), 0.0F);
+
+        source = new HashMap<>();
+        source.put(SOURCE_FIELD, Arrays.asList("The", "book", "was", "good."));
+        document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertEquals(0.4404F, ((Map<String, Float>) document.getFieldValue(TARGET_FIELD, Object.class))
+                .get(ScoreType.COMPOUND), 0.0F);
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithEmptyTokenSeparator() throws Exception {
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10),
+                getConfig("token_separator", ""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFactoryWithStateField() throws Exception {
+        String tag = randomAsciiOfLength(10);
+        VaderProcessor vaderProcessor = new VaderProcessor.Factory(vaderSentimentService).create(null, tag,
+                getConfig("state_field", "sentiment_state"));
+        Assert.assertEquals("sentiment_state", vaderProcessor.getStateField());
+
+        String message = "Hi, my order never arrived. It is horrible!";
+        Map<String, Object> source = new HashMap<>();
+        source.put(SOURCE_FIELD, message);
+        IngestDocument document = new IngestDocument("index", "type", "id", null, null, null, null, source);
+        vaderProcessor.execute(document);
+        Assert.assertTrue(document.hasField("sentiment_state"));
+
+        String thread = message + "\nSorry, it ships today.\nGreat, thanks!";
+        document.setFieldValue(SOURCE_FIELD, thread);
+        vaderProcessor.execute(document);
+        float[] expected = new float[4];
+        vaderSentimentService.scoreSentences(thread, expected, null);
+        Assert.assertEquals(expected[VaderSentimentService.COMPOUND],
+                ((Map<String, Float>) document.getFieldValue(TARGET_FIELD, Object.class)).get(ScoreType.COMPOUND),
+                0.0F);
+        // the second run scores the text from the start of the last sentence of the first one
+        Assert.assertEquals(message.length() + thread.length() - "Hi, my order never arrived.".length(),
+                vaderSentimentService.getStats(tag).getCharacters());
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void testFactoryWithStateFieldAndMaxChars() throws Exception {
+        Map<String, Object> config = getConfig("state_field", "sentiment_state");
+        config.put("max_chars", 100);
+        new VaderProcessor.Factory(vaderSentimentService).create(null, randomAsciiOfLength(10), config);
+    }
+
+    private Map<String, Object> getConfig(String option, Object value) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("input_field", SOURCE_FIELD);
+        config.put("target_field", TARGET_FIELD);
+        config.put(option, value);
+        return config;
+    }
+
     private IngestDocument getValidIngestDocument() throws Exception {
         return getIngestDocument(
                 "I'm a bit of a regular here. I'd like to give it 5 stars, but almost every time I go " +
@@ -0,0 +1,159 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import com.vader.sentiment.analyzer.SentimentAnalyzer;
+import com.vader.sentiment.util.ScoreType;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Confirms that the {@link VaderScorer} of the plugin scores exactly like the {@link SentimentAnalyzer}
+ * of the VADER library.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class VaderScorerTests extends ESTestCase {
+    private static final List<String> DOCUMENTS = Arrays.asList(
+            "VADER is smart, handsome, and funny.",
+            "VADER is VERY SMART, really handsome, and INCREDIBLY FUNNY!!!",
+            "The book was kind of good.",
+            "The plot was good, but the characters are uncompelling and the dialog is not great.",
+            "At least it isn't a horrible book.",
+            "Not bad at all... never so good, this is the bomb!",
+            "Make sure you :) or :D today!",
+            "Today kinda sux! But I'll get by, lol",
+            "It was good. It was good. It was GOOD, but not GOOD enough???",
+            "I am very very happy -- not sad, NOT angry, at least not yet?!?",
+            "She was the shit, he was a bad ass; yeah right, that was the kiss of death.",
+            "I'm a bit of a regular here. I'd like to give it 5 stars, but almost every time I go " +
+                    "my friends and I get frustrated with the service, so I had to knock it down to 4 stars. " +
+                    "The servers are extremely inattentive. \nWe always sit in the bar/lounge area, which is " +
+                    "beautifully decorated and has quite a fresh, relaxing vibe. \nThe drinks and food are " +
+                    "excellent -- I've only had 1 slightly bad food experience here out of probably 15 visits. " +
+                    "During happy hour, drinks are cheaper and we always get a few apps to share. The food is " +
+                    "really outstanding, full of flavors and VERY unique for Pittsburgh. I love it! Go!"
+    );
+
+    public void testThatScorerMatchesTheLibrary() throws IOException {
+        VaderSentimentService service = new VaderSentimentService().start();
+        for (String document : DOCUMENTS) {
+            assertSameScores(service, document);
+        }
+    }
+
+    public void testThatScorerMatchesTheLibraryOnRandomText() throws IOException {
+        VaderSentimentService service = new VaderSentimentService().start();
+        String[] words = {"good", "GOOD", "bad", "not", "very", "kind", "of", "but", "least", "at", "never", "so",
+                "this", "the", "bomb", "!", "?", ":)", "happy", "isn't", "sad!", "great,", "-", "HORRIBLE"};
+        for (int run = 0; run < 200; run++) {
+            StringBuilder document = new StringBuilder();
+            int length = randomIntBetween(0, 30);
+            for (int i = 0; i < length; i++) {
+                document.append(randomFrom(words)).append(randomFrom(" ", "  ", "\n", "\t"));
+            }
+            assertSameScores(service, document.toString());
+        }
+    }
+
+    public void testThatScorerReusesOutputArray() {
+        VaderScorer scorer = new VaderScorer();
+        VaderSentimentService service = new VaderSentimentService().start();
+        float[] polarity = new float[4];
+        scorer.score(service.getLexicon(), new StringBuilder("The book was good."), polarity);
+        assertThat(polarity[VaderSentimentService.COMPOUND], equalTo(0.4404F));
+        scorer.score(service.getLexicon(), "", polarity);
+        assertThat(polarity[VaderSentimentService.COMPOUND], equalTo(0.0F));
+        assertThat(polarity[VaderSentimentService.NEUTRAL], equalTo(0.0F));
+    }
+
+    public void testThatTokensAreScoredLikeText() {
+        VaderSentimentService service = new VaderSentimentService().start();
+        for (String document : DOCUMENTS) {
+            float[] expected = new float[4];
+            service.score(document, expected);
+            float[] polarity = new float[4];
+            service.score(TokenText.of(Arrays.asList(document.split("\\s+"))), polarity);
+            assertThat(document, polarity, equalTo(expected));
+            service.score(TokenText.split(document.replaceAll("\\s+", "|"), "|"), polarity);
+            assertThat(document, polarity, equalTo(expected));
+        }
+    }
+
+    public void testThatBatchIsScoredLikeSingleDocuments() {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        List<CharSequence> batch = new ArrayList<>(DOCUMENTS);
+        batch.add(2, "");
+        batch.add(new StringBuilder("The book was good."));
+        float[] polarities = service.applyAll(batch);
+        assertThat(polarities.length, equalTo(batch.size() * 4));
+        float[] polarity = new float[4];
+        for (int i = 0; i < batch.size(); i++) {
+            service.score(batch.get(i), polarity);
+            assertThat(batch.get(i).toString(), Arrays.copyOfRange(polarities, i * 4, i * 4 + 4), equalTo(polarity));
+        }
+        expectThrows(IllegalArgumentException.class, () -> service.scoreAll(batch, new float[4]));
+    }
+
+    public void testThatSentenceScoringCombinesSentences() {
+        VaderSentimentService service = new VaderSentimentService(2).start();
+        String document = "The book was good. A really bad, horrible book!\n\nToday sux";
+        int[] bounds = SentenceSplitter.split(document);
+        assertThat(bounds, equalTo(new int[]{0, 18, 47, document.length()}));
+
+        List<float[]> sentences = new ArrayList<>();
+        float[] polarity = new float[4];
+        service.scoreSentences(document, polarity, sentences);
+        assertThat(sentences.size(), equalTo(3));
+        assertThat(sentences.get(0)[VaderSentimentService.COMPOUND], equalTo(0.4404F));
+        assertThat(sentences.get(2)[VaderSentimentService.COMPOUND], equalTo(-0.3612F));
+
+        VaderScorer scorer = new VaderScorer();
+        PolarityAccumulator expected = new PolarityAccumulator();
+        for (int i = 0; i < bounds.length - 1; i++) {
+            scorer.accumulate(service.getLexicon(), document, bounds[i], bounds[i + 1], expected);
+        }
+        float[] expectedPolarity = new float[4];
+        expected.finish(expectedPolarity);
+        assertThat(polarity, equalTo(expectedPolarity));
+    }
+
+    public void testThatEmojiAreScoredAsWords() {
+        VaderSentimentService service = new VaderSentimentService(1).start();
+        // grinning face, written next to the last word
+        assertThat(service.apply("The book was good\ud83d\ude00").get(ScoreType.COMPOUND),
+                greaterThan(service.apply("The book was good.").get(ScoreType.COMPOUND)));
+        // loudly crying face, negated grinning face
+        assertThat(service.apply("\ud83d\ude2d").get(ScoreType.COMPOUND), lessThan(0.0F));
+        assertThat(service.apply("not \ud83d\ude00").get(ScoreType.COMPOUND), lessThan(0.0F));
+        // thumbs up with a skin tone, red heart with a variation selector
+        assertThat(service.apply("\ud83d\udc4d\ud83c\udffd"), equalTo(service.apply("\ud83d\udc4d")));
+        assertThat(service.apply("\u2764\ufe0f!"), equalTo(service.apply("\u2764!")));
+        // a symbol that is not an emoji stays part of its word
+        assertThat(service.apply("Brand\u2122 is good"), equalTo(service.apply("Brands is good")));
+    }
+
+    private void assertSameScores(VaderSentimentService service, String document) throws IOException {
+        SentimentAnalyzer sentimentAnalyzer = new SentimentAnalyzer();
+        sentimentAnalyzer.setInputString(document);
+        sentimentAnalyzer.setInputStringProperties();
+        sentimentAnalyzer.analyze();
+        Map<String, Float> expected = sentimentAnalyzer.getPolarity();
+        Map<String, Float> actual = service.apply(document);
+        for (String scoreType : Arrays.asList(ScoreType.COMPOUND, ScoreType.POSITIVE, ScoreType.NEGATIVE,
+                ScoreType.NEUTRAL)) {
+            assertThat(String.format(Locale.ROOT, "%s of [%s]", scoreType, document),
+                    actual.get(scoreType), equalTo(expected.get(scoreType)));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the {@code vader_sentiment} native script.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class VaderSentimentScriptTests extends ESTestCase {
+    private final VaderSentimentService service = new VaderSentimentService(1).start();
+    private final VaderSentimentScript.Factory factory = new VaderSentimentScript.Factory(service);
+
+    public void testThatScriptReturnsTheSelectedScore() {
+        VaderSentimentScript compound = (VaderSentimentScript) factory.newScript(params("score", "compound"));
+        VaderSentimentScript positive = (VaderSentimentScript) factory.newScript(params("score", "positive"));
+        float[] polarity = new float[4];
+        service.score("The book was good.", polarity);
+
+        assertThat(compound.score("The book was good."), equalTo((double) polarity[VaderSentimentService.COMPOUND]));
+        assertThat(positive.score("The book was good."), equalTo((double) polarity[VaderSentimentService.POSITIVE]));
+        assertThat(compound.score(null), equalTo(0.0));
+        assertThat(compound.score(42), equalTo(0.0));
+        assertThat(compound.score(" "), equalTo(0.0));
+    }
+
+    public void testThatArraysAreScoredAsOneText() {
+        VaderSentimentScript script = (VaderSentimentScript) factory.newScript(params("score", "compound"));
+        float[] polarity = new float[4];
+        service.score("The book was good.\nA really bad, horrible book.", polarity);
+        assertThat(script.score(Arrays.asList("The book was good.", 3, "A really bad, horrible book.")),
+                equalTo((double) polarity[VaderSentimentService.COMPOUND]));
+    }
+
+    public void testThatScriptsShareTheNodeCache() {
+        VaderSentimentScript script = (VaderSentimentScript) factory.newScript(params("cache_size", 123));
+        script.score("The book was good.");
+        script.score("The book was good.");
+        assertThat(service.getCache(123).hits(), equalTo(1L));
+
+        VaderSentimentScript uncached = (VaderSentimentScript) factory.newScript(params("cache_size", 0));
+        assertThat(uncached.score("The book was good."), equalTo(script.score("The book was good.")));
+        assertThat(factory.getName(), equalTo(VaderSentimentScript.NAME));
+        assertThat(factory.needsScores(), equalTo(false));
+    }
+
+    public void testThatInvalidParametersAreRejected() {
+        expectThrows(IllegalArgumentException.class, () -> factory.newScript(null));
+        expectThrows(IllegalArgumentException.class, () -> factory.newScript(params("score", "happiness")));
+        expectThrows(IllegalArgumentException.class, () -> factory.newScript(params("cache_size", -1)));
+        expectThrows(IllegalArgumentException.class, () -> factory.newScript(params("lexicon", "gaming")));
+    }
+
+    private static Map<String, Object> params(String name, Object value) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("field", "content");
+        params.put(name, value);
+        return params;
+    }
+}
@@ -13,7 +13,6 @@ import java.util.Map;
 import java.util.Random;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.Executors;
 import java.util.concurrent.CountDownLatch;
@@ -23,7 +22,8 @@ import static org.hamcrest.Matchers.equalTo;
 
 
 /**
- * This test confirms that the {@link SentimentAnalyzer} class is thread safe.
+ * This test confirms that the {@link VaderSentimentService} is thread safe and scores
+ * like the {@link SentimentAnalyzer} of the VADER library.
  * For this we have used a {@link CountDownLatch} to spin in some threads.
  *
  * @author Animesh Pandey
@@ -252,6 +252,13 @@ public class VaderThreadSafeTests extends ESTestCase {
         runnables.forEach(SentimentAnalyzerRunnable::assertResultIsCorrect);
     }
 
+    public void testThatReusedScorerDoesNotShareResults() {
+        Map<String, Float> first = vaderSentimentService.apply("The book was good.");
+        Map<String, Float> second = vaderSentimentService.apply("A really bad, horrible book.");
+        assertThat(first.get(ScoreType.COMPOUND), equalTo(0.4404F));
+        assertThat(second.get(ScoreType.COMPOUND), equalTo(-0.8211F));
+    }
+
     /**
      * This class passes one text document to one thread and then compares if the current
      * thread is producing the same result as expected.
@@ -275,8 +282,6 @@ public class VaderThreadSafeTests extends ESTestCase {
                 String currentDocument = currentDocumentPolarityPair.getDocument();
                 expectedResult = currentDocumentPolarityPair.getPolarities();
                 actualResult = vaderSentimentService.apply(currentDocument);
-            } catch (IOException e) {
-                e.printStackTrace();
             } finally {
                 latch.countDown();
             }
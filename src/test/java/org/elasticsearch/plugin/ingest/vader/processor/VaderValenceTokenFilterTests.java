@@ -0,0 +1,113 @@
+package org.elasticsearch.plugin.ingest.vader.processor;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.payloads.PayloadHelper;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTokenStreamTestCase;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for the {@code vader_valence} token filter.
+ *
+ * @author Animesh Pandey
+ */
+@RunWith(com.carrotsearch.randomizedtesting.RandomizedRunner.class)
+public class VaderValenceTokenFilterTests extends ESTokenStreamTestCase {
+    private static final String TEXT = "The book was GOOD but the ending was horrible";
+
+    private final VaderSentimentService service = new VaderSentimentService(1).start();
+
+    public void testThatValenceIsAttachedAsPayload() throws IOException {
+        TokenStream stream = filter(VaderValenceTokenFilter.Mode.PAYLOAD, false, 0.0F);
+        CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+        PayloadAttribute payloadAtt = stream.addAttribute(PayloadAttribute.class);
+        List<String> payloads = new ArrayList<>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            BytesRef payload = payloadAtt.getPayload();
+            if (payload != null) {
+                payloads.add(termAtt + "=" + PayloadHelper.decodeFloat(payload.bytes, payload.offset));
+            }
+        }
+        stream.end();
+        stream.close();
+
+        VaderLexicon lexicon = service.getLexicon();
+        assertThat(payloads.toString(), equalTo("[GOOD=" + lexicon.valence(lexicon.find("good", 0, 4))
+                + ", horrible=" + lexicon.valence(lexicon.find("horrible", 0, 8)) + "]"));
+    }
+
+    public void testThatCapturedPayloadsAreNotOverwritten() throws IOException {
+        TokenStream stream = filter(VaderValenceTokenFilter.Mode.PAYLOAD, true, 0.0F);
+        PayloadAttribute payloadAtt = stream.addAttribute(PayloadAttribute.class);
+        List<BytesRef> payloads = new ArrayList<>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            payloads.add(payloadAtt.getPayload());
+        }
+        stream.end();
+        stream.close();
+
+        VaderLexicon lexicon = service.getLexicon();
+        assertThat(payloads.size(), equalTo(2));
+        assertThat(PayloadHelper.decodeFloat(payloads.get(0).bytes, payloads.get(0).offset),
+                equalTo(lexicon.valence(lexicon.find("good", 0, 4))));
+        assertThat(PayloadHelper.decodeFloat(payloads.get(1).bytes, payloads.get(1).offset),
+                equalTo(lexicon.valence(lexicon.find("horrible", 0, 8))));
+    }
+
+    public void testThatMarkersAreAddedAtTheSamePosition() throws IOException {
+        assertTokenStreamContents(filter(VaderValenceTokenFilter.Mode.MARK, false, 0.0F),
+                new String[]{"The", "book", "was", "GOOD", VaderValenceTokenFilter.POSITIVE_TOKEN, "but", "the",
+                        "ending", "was", "horrible", VaderValenceTokenFilter.NEGATIVE_TOKEN},
+                new int[]{1, 1, 1, 1, 0, 1, 1, 1, 1, 1, 0});
+    }
+
+    public void testThatOnlySentimentCanBeKept() throws IOException {
+        assertTokenStreamContents(filter(VaderValenceTokenFilter.Mode.MARK, true, 0.0F),
+                new String[]{"GOOD", VaderValenceTokenFilter.POSITIVE_TOKEN, "horrible",
+                        VaderValenceTokenFilter.NEGATIVE_TOKEN},
+                new int[]{4, 0, 5, 0});
+        assertTokenStreamContents(filter(VaderValenceTokenFilter.Mode.PAYLOAD, true, 2.0F),
+                new String[]{"horrible"}, new int[]{9});
+    }
+
+    public void testThatRemovedOverlayKeepsMarking() throws IOException {
+        Path directory = createTempDir();
+        Files.write(directory.resolve("gaming.txt"), Collections.singletonList("gg\t2.5"), StandardCharsets.UTF_8);
+        service.loadOverlays(directory);
+        Files.delete(directory.resolve("gaming.txt"));
+        service.loadOverlays(directory);
+
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader("gg wp"));
+        assertTokenStreamContents(new VaderValenceTokenFilter(tokenizer, service, "gaming",
+                        VaderValenceTokenFilter.Mode.MARK, true, 0.0F),
+                new String[]{"gg", VaderValenceTokenFilter.POSITIVE_TOKEN}, new int[]{1, 0});
+    }
+
+    public void testThatUnknownModeIsRejected() {
+        expectThrows(IllegalArgumentException.class, () -> VaderValenceTokenFilter.Mode.parse("boost"));
+    }
+
+    private TokenStream filter(VaderValenceTokenFilter.Mode mode, boolean keepOnlySentiment, float minValence) {
+        Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(TEXT));
+        return new VaderValenceTokenFilter(tokenizer, service, null, mode, keepOnlySentiment, minValence);
+    }
+}